@@ -14,7 +14,7 @@ const BookComponent: React.FC<Props> = ({metadata, statistics}) => {
         <Image
           floated='right'
           size='mini'
-          src={metadata.thumbnailUrl}
+          src={`/api/books/${metadata.isbn}/thumbnail`}
         />
         <Card.Header>{metadata.title}</Card.Header>
         <Card.Meta>from {metadata.author}</Card.Meta>
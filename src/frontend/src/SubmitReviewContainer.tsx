@@ -79,7 +79,7 @@ const SubmitReviewContainer: React.FC<Props> = ({isAuthenticated, token}) => {
   }
 
   useEffect(() => {
-    fetch('/api/books')
+    fetch('/api/books?fields=isbn,title,author')
       .then(result => result.json())
       .then((result: Book[]) => {
         const formattedBooks = result.map((book: Book) => {
@@ -87,7 +87,7 @@ const SubmitReviewContainer: React.FC<Props> = ({isAuthenticated, token}) => {
             "key": book.isbn,
             "text": `${book.title} - ${book.author}`,
             "value": book.isbn,
-            "image": {"src": book.thumbnailUrl}
+            "image": {"src": `/api/books/${book.isbn}/thumbnail`}
           }
         });
         setBookOptions(formattedBooks);
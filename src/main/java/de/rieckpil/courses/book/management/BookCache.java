@@ -0,0 +1,121 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class BookCache {
+
+  private static final String CACHE_NAME = "books-by-isbn";
+
+  private final BookRepository bookRepository;
+  private final Clock clock;
+  private final int maximumSize;
+  private final long timeToLiveMillis;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  private final Map<String, CachedBook> entries;
+
+  @Autowired
+  public BookCache(BookRepository bookRepository,
+                   MeterRegistry meterRegistry,
+                   @Value("${books.cache.maximum-size:10000}") int maximumSize,
+                   @Value("${books.cache.time-to-live:1h}") Duration timeToLive) {
+    this(bookRepository, meterRegistry, maximumSize, timeToLive, Clock.systemUTC());
+  }
+
+  BookCache(BookRepository bookRepository, MeterRegistry meterRegistry, int maximumSize, Duration timeToLive, Clock clock) {
+    this.bookRepository = bookRepository;
+    this.clock = clock;
+    this.maximumSize = maximumSize;
+    this.timeToLiveMillis = timeToLive.toMillis();
+
+    this.hits = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "hit");
+    this.misses = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "miss");
+    this.evictions = meterRegistry.counter("cache.evictions", "cache", CACHE_NAME);
+
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedBook> eldest) {
+        if (size() > BookCache.this.maximumSize) {
+          BookCache.this.evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+
+    meterRegistry.gauge("cache.size", Tags.of("cache", CACHE_NAME), this, BookCache::size);
+  }
+
+  public Book findByIsbn(String isbn) {
+    long now = clock.millis();
+
+    synchronized (entries) {
+      CachedBook cached = entries.get(isbn);
+      if (cached != null) {
+        if (cached.expiresAt() > now) {
+          hits.increment();
+          return cached.book();
+        }
+        entries.remove(isbn);
+        evictions.increment();
+      }
+    }
+
+    misses.increment();
+
+    Book book = bookRepository.findByIsbn(isbn);
+
+    if (book != null) {
+      put(book);
+    }
+
+    return book;
+  }
+
+  public void put(Book book) {
+    synchronized (entries) {
+      entries.put(book.getIsbn(), new CachedBook(book, clock.millis() + timeToLiveMillis));
+    }
+  }
+
+  public void evict(String isbn) {
+    synchronized (entries) {
+      entries.remove(isbn);
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookStored(BookStoredEvent event) {
+    put(event.getBook());
+  }
+
+  @EventListener
+  public void onBookRemoved(BookRemovedEvent event) {
+    evict(event.getBook().getIsbn());
+  }
+
+  private record CachedBook(Book book, long expiresAt) {
+  }
+}
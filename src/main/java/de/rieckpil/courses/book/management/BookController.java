@@ -1,23 +1,198 @@
 package de.rieckpil.courses.book.management;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+  static final int MAX_PAGE_SIZE = 500;
+
   private final BookManagementService bookManagementService;
+  private final CatalogVersion catalogVersion;
+  private final CatalogResponseCache catalogResponseCache;
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter bookWriter;
 
-  public BookController(BookManagementService bookManagementService) {
+  public BookController(BookManagementService bookManagementService,
+                        CatalogVersion catalogVersion,
+                        CatalogResponseCache catalogResponseCache,
+                        ObjectMapper objectMapper) {
     this.bookManagementService = bookManagementService;
+    this.catalogVersion = catalogVersion;
+    this.catalogResponseCache = catalogResponseCache;
+    this.objectMapper = objectMapper;
+    this.bookWriter = objectMapper.writerFor(Book.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public void getAvailableBooks(@RequestParam(name = "fields", required = false) String fields,
+                                WebRequest webRequest,
+                                HttpServletResponse response) throws IOException {
+    Set<BookField> selectedFields = parseFields(fields);
+    boolean gzip = CatalogResponseCache.acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    long version = catalogVersion.current();
+
+    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (webRequest.checkNotModified(eTag(version, selectedFields, gzip ? "-gzip" : ""))) {
+      return;
+    }
+
+    CatalogResponseCache.CachedResponse cached = catalogResponseCache.get(version, fieldsTag(selectedFields),
+      outputStream -> writeCatalog(outputStream, selectedFields));
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    if (cached != null) {
+      byte[] body = gzip ? cached.getGzip() : cached.getIdentity();
+      response.setContentLength(body.length);
+      response.getOutputStream().write(body);
+    } else if (gzip) {
+      writeCatalog(new GZIPOutputStream(response.getOutputStream(), 8192), selectedFields);
+    } else {
+      writeCatalog(response.getOutputStream(), selectedFields);
+    }
+  }
+
+  @GetMapping(params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+  public void getAvailableBooksPage(@RequestParam("limit") int limit,
+                                    @RequestParam(name = "after", defaultValue = "0") long after,
+                                    @RequestParam(name = "fields", required = false) String fields,
+                                    WebRequest webRequest,
+                                    HttpServletResponse response) throws IOException {
+    int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    Set<BookField> selectedFields = parseFields(fields);
+
+    if (webRequest.checkNotModified(eTag(catalogVersion.current(), selectedFields, "-" + pageSize + "-" + after))) {
+      return;
+    }
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+    if (selectedFields != null && isSummary(selectedFields)) {
+      List<BookSummary> summaries = bookManagementService.getBookSummaries(pageSize, after);
+      addNextPageLink(response, pageSize, summaries.size(), summaries.isEmpty() ? null : summaries.get(summaries.size() - 1).getId());
+
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+        generator.writeStartArray();
+        summaries.forEach(summary -> writeFields(generator, selectedFields, field -> field.valueOf(summary)));
+        generator.writeEndArray();
+      }
+    } else {
+      List<Book> books = bookManagementService.getBooks(pageSize, after);
+      addNextPageLink(response, pageSize, books.size(), books.isEmpty() ? null : books.get(books.size() - 1).getId());
+
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+        generator.writeStartArray();
+        if (selectedFields == null) {
+          books.forEach(book -> writeBook(generator, book));
+        } else {
+          books.forEach(book -> writeFields(generator, selectedFields, field -> field.valueOf(book)));
+        }
+        generator.writeEndArray();
+      }
+    }
+  }
+
+  private void writeCatalog(OutputStream outputStream, Set<BookField> selectedFields) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.writeStartArray();
+      if (selectedFields == null) {
+        bookManagementService.streamAllBooks(book -> writeBook(generator, book));
+      } else if (isSummary(selectedFields)) {
+        bookManagementService.streamBookSummaries(summary -> writeFields(generator, selectedFields, field -> field.valueOf(summary)));
+      } else {
+        bookManagementService.streamAllBooks(book -> writeFields(generator, selectedFields, field -> field.valueOf(book)));
+      }
+      generator.writeEndArray();
+    }
+  }
+
+  private String eTag(long version, Set<BookField> selectedFields, String suffix) {
+    return "\"books-" + version + suffix + fieldsTag(selectedFields) + "\"";
+  }
+
+  private String fieldsTag(Set<BookField> selectedFields) {
+    return selectedFields == null ? "" : "-" + selectedFields.stream()
+      .map(BookField::getFieldName)
+      .collect(Collectors.joining(","));
+  }
+
+  private void addNextPageLink(HttpServletResponse response, int pageSize, int resultSize, Long lastId) {
+    if (resultSize == pageSize) {
+      String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+        .replaceQueryParam("limit", pageSize)
+        .replaceQueryParam("after", lastId)
+        .toUriString();
+      response.setHeader(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+    }
+  }
+
+  private Set<BookField> parseFields(String fields) {
+    if (fields == null || fields.isBlank()) {
+      return null;
+    }
+
+    Set<BookField> result = new LinkedHashSet<>();
+    for (String fieldName : fields.split(",")) {
+      try {
+        result.add(BookField.fromFieldName(fieldName.trim()));
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  private boolean isSummary(Set<BookField> selectedFields) {
+    return selectedFields.stream().allMatch(BookField::isPartOfSummary);
+  }
+
+  private void writeBook(JsonGenerator generator, Book book) {
+    try {
+      bookWriter.writeValue(generator, book);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
-  @GetMapping
-  public List<Book> getAvailableBooks() {
-    return bookManagementService.getAllBooks();
+  private void writeFields(JsonGenerator generator, Set<BookField> fields, Function<BookField, Object> values) {
+    try {
+      generator.writeStartObject();
+      for (BookField field : fields) {
+        generator.writeObjectField(field.getFieldName(), values.apply(field));
+      }
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
@@ -0,0 +1,31 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Instantiated by Hibernate through Spring's bean container so that every write to the
+ * books table, no matter which code path triggers it, reaches the in-memory catalog views.
+ */
+public class BookEntityListener {
+
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  public BookEntityListener(ApplicationEventPublisher applicationEventPublisher) {
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onStore(Book book) {
+    applicationEventPublisher.publishEvent(new BookStoredEvent(book));
+  }
+
+  @PostRemove
+  public void onRemove(Book book) {
+    applicationEventPublisher.publishEvent(new BookRemovedEvent(book));
+  }
+}
@@ -0,0 +1,50 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.function.Function;
+
+enum BookField {
+
+  ISBN("isbn", Book::getIsbn, BookSummary::getIsbn),
+  TITLE("title", Book::getTitle, BookSummary::getTitle),
+  AUTHOR("author", Book::getAuthor, BookSummary::getAuthor),
+  THUMBNAIL_URL("thumbnailUrl", Book::getThumbnailUrl, BookSummary::getThumbnailUrl),
+  GENRE("genre", Book::getGenre, null),
+  PUBLISHER("publisher", Book::getPublisher, null),
+  PAGES("pages", Book::getPages, null),
+  DESCRIPTION("description", Book::getDescription, null);
+
+  private final String fieldName;
+  private final Function<Book, Object> bookAccessor;
+  private final Function<BookSummary, Object> summaryAccessor;
+
+  BookField(String fieldName, Function<Book, Object> bookAccessor, Function<BookSummary, Object> summaryAccessor) {
+    this.fieldName = fieldName;
+    this.bookAccessor = bookAccessor;
+    this.summaryAccessor = summaryAccessor;
+  }
+
+  static BookField fromFieldName(String fieldName) {
+    for (BookField field : values()) {
+      if (field.fieldName.equals(fieldName)) {
+        return field;
+      }
+    }
+    throw new IllegalArgumentException("Unknown book field '" + fieldName + "'");
+  }
+
+  String getFieldName() {
+    return fieldName;
+  }
+
+  boolean isPartOfSummary() {
+    return summaryAccessor != null;
+  }
+
+  Object valueOf(Book book) {
+    return bookAccessor.apply(book);
+  }
+
+  Object valueOf(BookSummary summary) {
+    return summaryAccessor.apply(summary);
+  }
+}
@@ -1,19 +1,55 @@
 package de.rieckpil.courses.book.management;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class BookManagementService {
 
   private final BookRepository bookRepository;
+  private final EntityManager entityManager;
 
-  public BookManagementService(BookRepository bookRepository) {
+  public BookManagementService(BookRepository bookRepository, EntityManager entityManager) {
     this.bookRepository = bookRepository;
+    this.entityManager = entityManager;
   }
 
-  public List<Book> getAllBooks() {
-    return bookRepository.findAll();
+  public List<Book> getBooks(int limit, long after) {
+    return bookRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+  }
+
+  public List<BookSummary> getBookSummaries(int limit, long after) {
+    return bookRepository.findSummariesByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+  }
+
+  @Transactional(readOnly = true)
+  public void streamBookSummaries(Consumer<BookSummary> consumer) {
+    try (Stream<BookSummary> summaries = bookRepository.streamSummariesByOrderByIdAsc()) {
+      summaries.forEach(consumer);
+    }
+  }
+
+  @Transactional(readOnly = true)
+  public void streamBookIdentities(Consumer<BookIdentity> consumer) {
+    try (Stream<BookIdentity> identities = bookRepository.streamIdentities()) {
+      identities.forEach(consumer);
+    }
+  }
+
+  @Transactional(readOnly = true)
+  public void streamAllBooks(Consumer<Book> consumer) {
+    try (Stream<Book> books = bookRepository.streamAllByOrderByIdAsc()) {
+      books.forEach(book -> {
+        consumer.accept(book);
+        // keep the persistence context flat while walking the JDBC cursor
+        entityManager.detach(book);
+      });
+    }
   }
 }
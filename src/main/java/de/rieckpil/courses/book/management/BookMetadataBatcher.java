@@ -0,0 +1,133 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the ISBNs requested by concurrent callers within a short window and resolves them
+ * with a single {@link BookMetadataProviderChain#retrieveMetadataForBooks(java.util.Collection)} call.
+ */
+@Component
+public class BookMetadataBatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookMetadataBatcher.class.getName());
+
+  private static final Duration LOOKUP_TIMEOUT = Duration.ofSeconds(30);
+  static final int CONCURRENT_BATCHES = 4;
+
+  private final BookMetadataProviderChain bookMetadataProviderChain;
+  private final int batchSize;
+  private final Duration batchWindow;
+
+  // guards emissions, a unicast sink must not be signalled concurrently
+  private final Object emitLock = new Object();
+  private volatile Sinks.Many<PendingLookup> lookups;
+  private volatile Disposable subscription;
+  private volatile boolean shutdown;
+
+  public BookMetadataBatcher(BookMetadataProviderChain bookMetadataProviderChain,
+                             @Value("${clients.open-library.batch-size:20}") int batchSize,
+                             @Value("${clients.open-library.batch-window:50ms}") Duration batchWindow) {
+    this.bookMetadataProviderChain = bookMetadataProviderChain;
+    this.batchSize = batchSize;
+    this.batchWindow = batchWindow;
+    subscribe();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.shutdown = true;
+    subscription.dispose();
+  }
+
+  public Mono<Book> fetch(String isbn) {
+    return Mono.defer(() -> {
+      PendingLookup lookup = new PendingLookup(isbn);
+
+      synchronized (emitLock) {
+        lookups.emitNext(lookup, Sinks.EmitFailureHandler.FAIL_FAST);
+      }
+
+      return Mono.fromFuture(lookup.result);
+    }).timeout(LOOKUP_TIMEOUT);
+  }
+
+  private void subscribe() {
+    Sinks.Many<PendingLookup> sink = Sinks.many().unicast().onBackpressureBuffer();
+
+    synchronized (emitLock) {
+      this.lookups = sink;
+    }
+
+    this.subscription = sink.asFlux()
+      .bufferTimeout(batchSize, batchWindow)
+      // bufferTimeout ignores demand when its timer fires, park batches while all slots are busy
+      .onBackpressureBuffer()
+      .flatMap(this::resolve, CONCURRENT_BATCHES)
+      .subscribe(null, this::resubscribe);
+  }
+
+  // the failed sink can't be subscribed again, lookups still inside it run into their timeout
+  private void resubscribe(Throwable error) {
+    if (shutdown) {
+      return;
+    }
+
+    LOG.error("Batching of metadata lookups failed, starting over", error);
+    subscribe();
+  }
+
+  private Mono<Void> resolve(List<PendingLookup> batch) {
+    LOG.debug("Fetching metadata for a batch of {} book(s)", batch.size());
+
+    return bookMetadataProviderChain.retrieveMetadataForBooks(batch.stream()
+        .map(lookup -> lookup.isbn)
+        .collect(Collectors.toList()))
+      .doOnNext(books -> batch.forEach(lookup -> {
+        Book book = books.get(lookup.isbn);
+        if (book == null) {
+          lookup.result.completeExceptionally(new IllegalStateException("No metadata found for isbn '" + lookup.isbn + "'"));
+        } else {
+          lookup.result.complete(copyOf(book));
+        }
+      }))
+      .doOnError(error -> batch.forEach(lookup -> lookup.result.completeExceptionally(error)))
+      .onErrorResume(error -> Mono.empty())
+      .then();
+  }
+
+  // the same ISBN may be requested twice within one batch, don't share the entity
+  private static Book copyOf(Book book) {
+    Book copy = new Book();
+    copy.setIsbn(book.getIsbn());
+    copy.setTitle(book.getTitle());
+    copy.setAuthor(book.getAuthor());
+    copy.setPublisher(book.getPublisher());
+    copy.setPages(book.getPages());
+    copy.setDescription(book.getDescription());
+    copy.setGenre(book.getGenre());
+    copy.setThumbnailUrl(book.getThumbnailUrl());
+    return copy;
+  }
+
+  private static final class PendingLookup {
+
+    private final String isbn;
+    private final CompletableFuture<Book> result = new CompletableFuture<>();
+
+    PendingLookup(String isbn) {
+      this.isbn = isbn;
+    }
+  }
+}
@@ -0,0 +1,348 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-persistent cache of Open Library lookups, including ISBNs Open Library doesn't know.
+ * Entries are appended to a JSON lines file by a dedicated writer thread, so callers on the
+ * HTTP client's event loop never block on disk. The least recently used entries are evicted
+ * beyond {@code clients.open-library.metadata-cache.maximum-size}. The file is compacted on
+ * startup, periodically and whenever it grew by that many lines, dropping expired and evicted
+ * entries.
+ */
+@Component
+public class BookMetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookMetadataCache.class.getName());
+
+  private static final String CACHE_NAME = "open-library-metadata";
+  private static final String FILE_NAME = "metadata-cache.jsonl";
+
+  private final ObjectMapper objectMapper;
+  private final Path directory;
+  private final int maximumSize;
+  private final long timeToLiveMillis;
+  private final long notFoundTimeToLiveMillis;
+  private final Clock clock;
+
+  private final Counter hits;
+  private final Counter misses;
+
+  // access ordered, guarded by itself
+  private final Map<String, CachedMetadata> entries;
+
+  private final ExecutorService persistence = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "book-metadata-cache-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // only used by the persistence thread once opened
+  private BufferedWriter writer;
+  private int linesSinceCompaction;
+
+  @Autowired
+  public BookMetadataCache(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${clients.open-library.metadata-cache.directory:${java.io.tmpdir}/book-metadata-cache}") Path directory,
+                           @Value("${clients.open-library.metadata-cache.maximum-size:100000}") int maximumSize,
+                           @Value("${clients.open-library.metadata-cache.time-to-live:7d}") Duration timeToLive,
+                           @Value("${clients.open-library.metadata-cache.not-found-time-to-live:1h}") Duration notFoundTimeToLive) {
+    this(objectMapper, meterRegistry, directory, maximumSize, timeToLive, notFoundTimeToLive, Clock.systemUTC());
+  }
+
+  BookMetadataCache(ObjectMapper objectMapper, MeterRegistry meterRegistry, Path directory, int maximumSize,
+                    Duration timeToLive, Duration notFoundTimeToLive, Clock clock) {
+    this.objectMapper = objectMapper;
+    this.directory = directory;
+    this.maximumSize = maximumSize;
+    this.timeToLiveMillis = timeToLive.toMillis();
+    this.notFoundTimeToLiveMillis = notFoundTimeToLive.toMillis();
+    this.clock = clock;
+
+    this.hits = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "hit");
+    this.misses = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "miss");
+
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedMetadata> eldest) {
+        return size() > BookMetadataCache.this.maximumSize;
+      }
+    };
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve(FILE_NAME);
+
+    if (Files.exists(file)) {
+      load(file);
+      rewrite(file);
+    }
+
+    this.writer = newWriter(file);
+    LOG.info("Loaded {} cached Open Library lookups from '{}'", size(), file);
+  }
+
+  /**
+   * Waits for pending writes before closing the file.
+   */
+  @PreDestroy
+  public void close() throws IOException {
+    persistence.shutdown();
+    try {
+      if (!persistence.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOG.warn("Gave up waiting for pending Open Library lookups to be written");
+        persistence.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  /**
+   * @return empty if the ISBN has to be looked up, otherwise the cached result whose book is
+   * {@code null} for ISBNs Open Library didn't know
+   */
+  public Optional<CachedMetadata> lookup(String isbn) {
+    CachedMetadata cached;
+    synchronized (entries) {
+      cached = entries.get(isbn);
+      if (cached != null && isExpired(cached, clock.millis())) {
+        entries.remove(isbn);
+        cached = null;
+      }
+    }
+
+    if (cached == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    hits.increment();
+    return Optional.of(cached);
+  }
+
+  public void put(Book book) {
+    try {
+      store(new CachedMetadata(book.getIsbn(), clock.millis(), objectMapper.writeValueAsString(book), objectMapper));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void putNotFound(String isbn) {
+    store(new CachedMetadata(isbn, clock.millis(), null, objectMapper));
+  }
+
+  /**
+   * Drops expired entries from memory and rewrites the file with what is left.
+   */
+  @Scheduled(fixedDelayString = "${clients.open-library.metadata-cache.compaction-interval:PT1H}")
+  public void compact() {
+    persist(this::compactFile);
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private void store(CachedMetadata metadata) {
+    synchronized (entries) {
+      entries.put(metadata.isbn, metadata);
+    }
+    persist(() -> append(metadata));
+  }
+
+  private void persist(Runnable task) {
+    try {
+      persistence.execute(task);
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Open Library lookup cache is closed, keeping the lookup in memory only");
+    }
+  }
+
+  private void append(CachedMetadata metadata) {
+    if (writer == null) {
+      return;
+    }
+
+    try {
+      writer.write(toLine(metadata));
+      writer.newLine();
+      writer.flush();
+    } catch (IOException e) {
+      LOG.warn("Failed to persist Open Library lookup for isbn '{}'", metadata.isbn, e);
+    }
+
+    // superseded and evicted lines pile up otherwise
+    if (++linesSinceCompaction >= maximumSize) {
+      compactFile();
+    }
+  }
+
+  private void compactFile() {
+    long now = clock.millis();
+    synchronized (entries) {
+      entries.values().removeIf(metadata -> isExpired(metadata, now));
+    }
+
+    if (writer == null) {
+      return;
+    }
+
+    Path file = directory.resolve(FILE_NAME);
+    try {
+      writer.close();
+      rewrite(file);
+      writer = newWriter(file);
+      linesSinceCompaction = 0;
+    } catch (IOException e) {
+      LOG.warn("Failed to compact Open Library lookup cache '{}'", file, e);
+      try {
+        writer = newWriter(file);
+      } catch (IOException reopenFailure) {
+        LOG.warn("Failed to reopen Open Library lookup cache '{}', no longer persisting lookups", file, reopenFailure);
+        writer = null;
+      }
+    }
+  }
+
+  private void load(Path file) throws IOException {
+    long now = clock.millis();
+
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        try {
+          JsonNode entry = objectMapper.readTree(line);
+          JsonNode book = entry.get("book");
+          CachedMetadata metadata = new CachedMetadata(entry.get("isbn").asText(), entry.get("fetchedAt").asLong(),
+            book == null || book.isNull() ? null : book.toString(), objectMapper);
+
+          synchronized (entries) {
+            if (isExpired(metadata, now)) {
+              entries.remove(metadata.isbn);
+            } else {
+              entries.put(metadata.isbn, metadata);
+            }
+          }
+        } catch (IOException | RuntimeException e) {
+          // a torn last line after a crash, everything before it is still usable
+          LOG.warn("Skipping unreadable line of Open Library lookup cache '{}'", file);
+        }
+      }
+    }
+  }
+
+  private void rewrite(Path file) throws IOException {
+    Path compacted = directory.resolve(FILE_NAME + ".tmp");
+
+    List<CachedMetadata> snapshot;
+    synchronized (entries) {
+      snapshot = new ArrayList<>(entries.values());
+    }
+
+    try (BufferedWriter compactedWriter = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+      for (CachedMetadata metadata : snapshot) {
+        compactedWriter.write(toLine(metadata));
+        compactedWriter.newLine();
+      }
+    }
+
+    Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static BufferedWriter newWriter(Path file) throws IOException {
+    return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private String toLine(CachedMetadata metadata) throws IOException {
+    ObjectNode line = objectMapper.createObjectNode()
+      .put("isbn", metadata.isbn)
+      .put("fetchedAt", metadata.fetchedAt);
+    line.set("book", metadata.json == null ? null : objectMapper.readTree(metadata.json));
+    return objectMapper.writeValueAsString(line);
+  }
+
+  private boolean isExpired(CachedMetadata metadata, long now) {
+    long timeToLive = metadata.json == null ? notFoundTimeToLiveMillis : timeToLiveMillis;
+    return metadata.fetchedAt + timeToLive <= now;
+  }
+
+  public static final class CachedMetadata {
+
+    private final String isbn;
+    private final long fetchedAt;
+    private final String json;
+    private final ObjectMapper objectMapper;
+
+    CachedMetadata(String isbn, long fetchedAt, String json, ObjectMapper objectMapper) {
+      this.isbn = isbn;
+      this.fetchedAt = fetchedAt;
+      this.json = json;
+      this.objectMapper = objectMapper;
+    }
+
+    public boolean isNotFound() {
+      return json == null;
+    }
+
+    /**
+     * @return a new instance on every call, callers are free to modify and persist it
+     */
+    public Book getBook() {
+      if (json == null) {
+        return null;
+      }
+
+      try {
+        return objectMapper.readValue(json, Book.class);
+      } catch (JsonProcessingException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package de.rieckpil.courses.book.management;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Source of book metadata, the {@link BookMetadataProviderChain} decides which one is asked first.
+ */
+public interface BookMetadataProvider {
+
+  /**
+   * @return the name used to reference the provider in {@code clients.open-library.providers}
+   */
+  String getName();
+
+  /**
+   * @return the books found by ISBN, ISBNs the provider doesn't know are missing in the result
+   */
+  Mono<Map<String, Book>> retrieveMetadataForBooks(Collection<String> isbns);
+}
@@ -0,0 +1,68 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Asks the configured providers in order, the next one is only used if the previous one failed
+ * with a transient error. ISBNs a provider doesn't know are not looked up again, all providers
+ * share the same upstream. For the same reason there is no fallback while the circuit breaker is
+ * open or for requests Open Library rejected.
+ */
+@Component
+public class BookMetadataProviderChain {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookMetadataProviderChain.class.getName());
+
+  private final List<BookMetadataProvider> providers;
+
+  public BookMetadataProviderChain(List<BookMetadataProvider> availableProviders,
+                                   @Value("${clients.open-library.providers:web-client,rest-template}") List<String> order) {
+    Map<String, BookMetadataProvider> providersByName = availableProviders.stream()
+      .collect(Collectors.toMap(BookMetadataProvider::getName, Function.identity()));
+
+    this.providers = new ArrayList<>();
+    for (String name : order) {
+      BookMetadataProvider provider = providersByName.get(name.trim());
+      if (provider == null) {
+        throw new IllegalStateException("Unknown book metadata provider '" + name + "', available are " + providersByName.keySet());
+      }
+      providers.add(provider);
+    }
+
+    if (providers.isEmpty()) {
+      throw new IllegalStateException("At least one book metadata provider has to be configured");
+    }
+  }
+
+  public Mono<Map<String, Book>> retrieveMetadataForBooks(Collection<String> isbns) {
+    Mono<Map<String, Book>> result = providers.get(0).retrieveMetadataForBooks(isbns);
+
+    for (int i = 1; i < providers.size(); i++) {
+      BookMetadataProvider failed = providers.get(i - 1);
+      BookMetadataProvider fallback = providers.get(i);
+
+      result = result.onErrorResume(OpenLibraryResilience::isRetryable, error -> {
+        LOG.warn("Book metadata provider '{}' failed for {} book(s), falling back to '{}'",
+          failed.getName(), isbns.size(), fallback.getName(), error);
+        return fallback.retrieveMetadataForBooks(isbns);
+      });
+    }
+
+    return result;
+  }
+
+  List<BookMetadataProvider> getProviders() {
+    return providers;
+  }
+}
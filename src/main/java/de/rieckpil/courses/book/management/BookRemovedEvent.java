@@ -0,0 +1,14 @@
+package de.rieckpil.courses.book.management;
+
+public class BookRemovedEvent {
+
+  private final Book book;
+
+  public BookRemovedEvent(Book book) {
+    this.book = book;
+  }
+
+  public Book getBook() {
+    return book;
+  }
+}
@@ -0,0 +1,27 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/books")
+public class BookSearchController {
+
+  private static final int MAX_RESULTS = 100;
+
+  private final BookSearchIndex bookSearchIndex;
+
+  public BookSearchController(BookSearchIndex bookSearchIndex) {
+    this.bookSearchIndex = bookSearchIndex;
+  }
+
+  @GetMapping("/search")
+  public List<BookSearchResult> searchBooks(@RequestParam("q") String query,
+                                            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+    return bookSearchIndex.search(query, Math.min(Math.max(limit, 1), MAX_RESULTS));
+  }
+}
@@ -0,0 +1,216 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Component
+public class BookSearchIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSearchIndex.class.getName());
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private static final double TITLE_WEIGHT = 3.0;
+  private static final double AUTHOR_WEIGHT = 2.5;
+  private static final double GENRE_WEIGHT = 1.5;
+  private static final double PUBLISHER_WEIGHT = 1.0;
+  private static final double DESCRIPTION_WEIGHT = 0.5;
+
+  private static final double PREFIX_MATCH_PENALTY = 0.5;
+  private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+  private final BookManagementService bookManagementService;
+
+  // term -> (isbn -> weighted term frequency)
+  private final NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+  private final Map<String, IndexedBook> documents = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public BookSearchIndex(BookManagementService bookManagementService) {
+    this.bookManagementService = bookManagementService;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildIndex() {
+    long start = System.currentTimeMillis();
+    bookManagementService.streamAllBooks(this::index);
+    LOG.info("Indexed {} books for search in {} ms", size(), System.currentTimeMillis() - start);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookStored(BookStoredEvent event) {
+    index(event.getBook());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookRemoved(BookRemovedEvent event) {
+    remove(event.getBook().getIsbn());
+  }
+
+  public void index(Book book) {
+    Map<String, Double> termWeights = new HashMap<>();
+    addTerms(termWeights, book.getTitle(), TITLE_WEIGHT);
+    addTerms(termWeights, book.getAuthor(), AUTHOR_WEIGHT);
+    addTerms(termWeights, book.getGenre(), GENRE_WEIGHT);
+    addTerms(termWeights, book.getPublisher(), PUBLISHER_WEIGHT);
+    addTerms(termWeights, book.getDescription(), DESCRIPTION_WEIGHT);
+
+    BookSearchResult document = new BookSearchResult(book.getIsbn(), book.getTitle(), book.getAuthor(),
+      book.getGenre(), book.getPublisher(), book.getThumbnailUrl(), 0);
+
+    lock.writeLock().lock();
+    try {
+      removeUnderLock(book.getIsbn());
+      termWeights.forEach((term, weight) ->
+        postings.computeIfAbsent(term, key -> new HashMap<>()).put(book.getIsbn(), weight));
+      documents.put(book.getIsbn(), new IndexedBook(document, List.copyOf(termWeights.keySet())));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String isbn) {
+    lock.writeLock().lock();
+    try {
+      removeUnderLock(isbn);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<BookSearchResult> search(String query, int limit) {
+    List<String> queryTerms = tokenize(query);
+
+    if (queryTerms.isEmpty()) {
+      return List.of();
+    }
+
+    lock.readLock().lock();
+    try {
+      Map<String, Double> scores = null;
+
+      // every query term has to match, either exactly or as a prefix of an indexed term
+      for (String queryTerm : queryTerms) {
+        Map<String, Double> termScores = scoreTerm(queryTerm);
+
+        if (scores == null) {
+          scores = termScores;
+        } else {
+          Map<String, Double> previousScores = scores;
+          scores = new HashMap<>();
+          for (Map.Entry<String, Double> entry : termScores.entrySet()) {
+            Double previous = previousScores.get(entry.getKey());
+            if (previous != null) {
+              scores.put(entry.getKey(), previous + entry.getValue());
+            }
+          }
+        }
+
+        if (scores.isEmpty()) {
+          return List.of();
+        }
+      }
+
+      List<BookSearchResult> result = new ArrayList<>(scores.size());
+      scores.forEach((isbn, score) -> result.add(documents.get(isbn).document().withScore(score)));
+      result.sort(Comparator.comparingDouble(BookSearchResult::getScore).reversed()
+        .thenComparing(BookSearchResult::getTitle, Comparator.nullsLast(Comparator.naturalOrder())));
+
+      return result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Map<String, Double> scoreTerm(String queryTerm) {
+    Map<String, Double> termScores = new HashMap<>();
+    int expansions = 0;
+
+    for (Map.Entry<String, Map<String, Double>> posting :
+      postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+
+      if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+        break;
+      }
+
+      double boost = posting.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_PENALTY;
+      double idf = Math.log(1.0 + (double) documents.size() / posting.getValue().size());
+
+      posting.getValue().forEach((isbn, weight) ->
+        termScores.merge(isbn, weight * idf * boost, Math::max));
+    }
+
+    return termScores;
+  }
+
+  private void removeUnderLock(String isbn) {
+    IndexedBook existing = documents.remove(isbn);
+
+    if (existing == null) {
+      return;
+    }
+
+    for (String term : existing.terms()) {
+      Map<String, Double> posting = postings.get(term);
+      if (posting != null) {
+        posting.remove(isbn);
+        if (posting.isEmpty()) {
+          postings.remove(term);
+        }
+      }
+    }
+  }
+
+  private static void addTerms(Map<String, Double> termWeights, String text, double weight) {
+    for (String term : tokenize(text)) {
+      termWeights.merge(term, weight, Double::sum);
+    }
+  }
+
+  static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) {
+      return List.of();
+    }
+
+    String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+      .toLowerCase(Locale.ROOT);
+
+    List<String> terms = new ArrayList<>();
+    for (String token : NON_ALPHANUMERIC.split(normalized)) {
+      if (!token.isEmpty()) {
+        terms.add(token);
+      }
+    }
+    return terms;
+  }
+
+  private record IndexedBook(BookSearchResult document, List<String> terms) {
+  }
+}
@@ -0,0 +1,55 @@
+package de.rieckpil.courses.book.management;
+
+public class BookSearchResult {
+
+  private final String isbn;
+  private final String title;
+  private final String author;
+  private final String genre;
+  private final String publisher;
+  private final String thumbnailUrl;
+  private final double score;
+
+  public BookSearchResult(String isbn, String title, String author, String genre, String publisher,
+                          String thumbnailUrl, double score) {
+    this.isbn = isbn;
+    this.title = title;
+    this.author = author;
+    this.genre = genre;
+    this.publisher = publisher;
+    this.thumbnailUrl = thumbnailUrl;
+    this.score = score;
+  }
+
+  public String getIsbn() {
+    return isbn;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public String getGenre() {
+    return genre;
+  }
+
+  public String getPublisher() {
+    return publisher;
+  }
+
+  public String getThumbnailUrl() {
+    return thumbnailUrl;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  BookSearchResult withScore(double score) {
+    return new BookSearchResult(isbn, title, author, genre, publisher, thumbnailUrl, score);
+  }
+}
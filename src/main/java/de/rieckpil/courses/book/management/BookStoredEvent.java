@@ -0,0 +1,14 @@
+package de.rieckpil.courses.book.management;
+
+public class BookStoredEvent {
+
+  private final Book book;
+
+  public BookStoredEvent(Book book) {
+    this.book = book;
+  }
+
+  public Book getBook() {
+    return book;
+  }
+}
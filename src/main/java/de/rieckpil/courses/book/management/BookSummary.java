@@ -0,0 +1,16 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public interface BookSummary {
+  @JsonIgnore
+  Long getId();
+
+  String getIsbn();
+
+  String getTitle();
+
+  String getAuthor();
+
+  String getThumbnailUrl();
+}
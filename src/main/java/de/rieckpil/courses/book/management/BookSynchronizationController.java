@@ -0,0 +1,67 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.List;
+
+@Validated
+@RestController
+@RequestMapping("/api/books")
+public class BookSynchronizationController {
+
+  // a single request shouldn't drain a huge dead-letter queue on a request thread
+  private static final int MAX_REPLAYED_MESSAGES = 10_000;
+
+  private final BookSynchronizationPublisher bookSynchronizationPublisher;
+  private final BookSynchronizationDeadLetterQueue bookSynchronizationDeadLetterQueue;
+
+  public BookSynchronizationController(BookSynchronizationPublisher bookSynchronizationPublisher,
+                                       BookSynchronizationDeadLetterQueue bookSynchronizationDeadLetterQueue) {
+    this.bookSynchronizationPublisher = bookSynchronizationPublisher;
+    this.bookSynchronizationDeadLetterQueue = bookSynchronizationDeadLetterQueue;
+  }
+
+  /**
+   * Queues the given ISBNs for synchronization with Open Library, the books show up once the
+   * listener processed them.
+   */
+  @PostMapping("/sync")
+  @PreAuthorize("hasAuthority('ROLE_moderator')")
+  public ResponseEntity<BookSynchronizationResponse> synchronizeBooks(@RequestBody @Valid BookSynchronizationRequest request) {
+    List<String> valid = new ArrayList<>();
+    List<String> rejected = new ArrayList<>();
+
+    for (String isbn : request.getIsbns()) {
+      if (Isbn.isValid(isbn)) {
+        valid.add(isbn);
+      } else {
+        rejected.add(isbn);
+      }
+    }
+
+    BookSynchronizationPublisher.EnqueueResult result = bookSynchronizationPublisher.enqueue(valid).join();
+
+    return ResponseEntity.accepted()
+      .body(new BookSynchronizationResponse(result.getEnqueued(), result.getFailed(), rejected));
+  }
+
+  /**
+   * Moves up to {@code maxMessages} failed synchronizations back to the queue, e.g. once the
+   * cause of their failure is fixed.
+   */
+  @PostMapping("/sync/dead-letters/replay")
+  @PreAuthorize("hasAuthority('ROLE_moderator')")
+  public BookSynchronizationReplayResponse replayDeadLetters(@RequestParam(defaultValue = "100") int maxMessages) {
+    int replayed = bookSynchronizationDeadLetterQueue.replay(Math.max(1, Math.min(maxMessages, MAX_REPLAYED_MESSAGES)));
+    return new BookSynchronizationReplayResponse(replayed);
+  }
+}
@@ -0,0 +1,184 @@
+package de.rieckpil.courses.book.management;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Parks book synchronizations that can't succeed on their own in a separate queue, together
+ * with the reason they failed, until {@link #replay(int)} moves them back.
+ */
+@Component
+public class BookSynchronizationDeadLetterQueue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSynchronizationDeadLetterQueue.class.getName());
+
+  static final String FAILURE_REASON_ATTRIBUTE = "failure-reason";
+  static final String SOURCE_MESSAGE_ID_ATTRIBUTE = "source-message-id";
+  static final String RECEIVE_COUNT_ATTRIBUTE = "receive-count";
+
+  // SQS limits a single message attribute value to 256 KB, keep the reason readable instead
+  private static final int MAX_FAILURE_REASON_LENGTH = 1024;
+
+  private static final MessageAttributeValue JSON_CONTENT_TYPE = new MessageAttributeValue()
+    .withDataType("String")
+    .withStringValue(MimeTypeUtils.APPLICATION_JSON_VALUE);
+
+  private final AmazonSQSAsync amazonSQSAsync;
+  private final String queueName;
+  private final String deadLetterQueueName;
+
+  private volatile String queueUrl;
+  private volatile String deadLetterQueueUrl;
+
+  public BookSynchronizationDeadLetterQueue(AmazonSQSAsync amazonSQSAsync,
+                                            @Value("${sqs.book-synchronization-queue}") String queueName,
+                                            @Value("${sqs.book-synchronization-dead-letter-queue:${sqs.book-synchronization-queue}-dead-letters}") String deadLetterQueueName) {
+    this.amazonSQSAsync = amazonSQSAsync;
+    this.queueName = queueName;
+    this.deadLetterQueueName = deadLetterQueueName;
+  }
+
+  /**
+   * @param body the message body as received, it is replayed unchanged
+   * @return completes once the dead-letter queue accepted the message
+   */
+  public CompletableFuture<Void> send(String body, String messageId, int receiveCount, Throwable failure) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+
+    try {
+      SendMessageRequest request = new SendMessageRequest(getDeadLetterQueueUrl(), body)
+        .withMessageAttributes(Map.of(
+          "contentType", JSON_CONTENT_TYPE,
+          FAILURE_REASON_ATTRIBUTE, stringAttribute(describe(failure)),
+          SOURCE_MESSAGE_ID_ATTRIBUTE, stringAttribute(messageId),
+          RECEIVE_COUNT_ATTRIBUTE, new MessageAttributeValue().withDataType("Number").withStringValue(String.valueOf(receiveCount))));
+
+      amazonSQSAsync.sendMessageAsync(request, new AsyncHandler<>() {
+        @Override
+        public void onError(Exception exception) {
+          result.completeExceptionally(exception);
+        }
+
+        @Override
+        public void onSuccess(SendMessageRequest sendMessageRequest, SendMessageResult sendMessageResult) {
+          result.complete(null);
+        }
+      });
+    } catch (RuntimeException e) {
+      // e.g. the dead-letter queue doesn't exist
+      result.completeExceptionally(e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Moves up to {@code maxMessages} messages back to the book synchronization queue. A message
+   * is only deleted from the dead-letter queue once the book synchronization queue accepted it.
+   *
+   * @return the number of replayed messages
+   */
+  public int replay(int maxMessages) {
+    int replayed = 0;
+
+    while (replayed < maxMessages) {
+      List<Message> messages = amazonSQSAsync.receiveMessage(new ReceiveMessageRequest(getDeadLetterQueueUrl())
+          .withMaxNumberOfMessages(Math.min(BookSynchronizationPublisher.MAX_BATCH_SIZE, maxMessages - replayed))
+          .withMessageAttributeNames("All"))
+        .getMessages();
+
+      if (messages.isEmpty()) {
+        break;
+      }
+
+      List<SendMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+      for (int i = 0; i < messages.size(); i++) {
+        Message message = messages.get(i);
+        LOG.info("Replaying message '{}' which failed with: {}", message.getMessageId(),
+          attribute(message, FAILURE_REASON_ATTRIBUTE));
+        entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), message.getBody())
+          .withMessageAttributes(Map.of("contentType", JSON_CONTENT_TYPE)));
+      }
+
+      SendMessageBatchResult result = amazonSQSAsync.sendMessageBatch(new SendMessageBatchRequest(getQueueUrl(), entries));
+
+      Set<String> failed = new HashSet<>();
+      for (BatchResultErrorEntry error : result.getFailed()) {
+        LOG.warn("SQS rejected replayed book synchronization: {} {}", error.getCode(), error.getMessage());
+        failed.add(error.getId());
+      }
+
+      List<DeleteMessageBatchRequestEntry> deletions = new ArrayList<>(messages.size());
+      for (int i = 0; i < messages.size(); i++) {
+        if (!failed.contains(String.valueOf(i))) {
+          deletions.add(new DeleteMessageBatchRequestEntry(String.valueOf(i), messages.get(i).getReceiptHandle()));
+        }
+      }
+
+      if (deletions.isEmpty()) {
+        // everything was rejected, the messages reappear once their visibility timeout expired
+        break;
+      }
+
+      amazonSQSAsync.deleteMessageBatch(new DeleteMessageBatchRequest(getDeadLetterQueueUrl(), deletions));
+      replayed += deletions.size();
+    }
+
+    return replayed;
+  }
+
+  static String describe(Throwable failure) {
+    String reason = failure.getClass().getName() + (failure.getMessage() != null ? ": " + failure.getMessage() : "");
+    return reason.length() > MAX_FAILURE_REASON_LENGTH ? reason.substring(0, MAX_FAILURE_REASON_LENGTH) : reason;
+  }
+
+  private static MessageAttributeValue stringAttribute(String value) {
+    return new MessageAttributeValue().withDataType("String").withStringValue(value);
+  }
+
+  private static String attribute(Message message, String name) {
+    MessageAttributeValue value = message.getMessageAttributes().get(name);
+    return value != null ? value.getStringValue() : null;
+  }
+
+  private String getQueueUrl() {
+    String url = queueUrl;
+    if (url == null) {
+      url = amazonSQSAsync.getQueueUrl(queueName).getQueueUrl();
+      queueUrl = url;
+    }
+    return url;
+  }
+
+  private String getDeadLetterQueueUrl() {
+    String url = deadLetterQueueUrl;
+    if (url == null) {
+      url = amazonSQSAsync.getQueueUrl(deadLetterQueueName).getQueueUrl();
+      deadLetterQueueUrl = url;
+    }
+    return url;
+  }
+}
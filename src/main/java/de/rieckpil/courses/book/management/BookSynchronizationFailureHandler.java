@@ -0,0 +1,114 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.aws.messaging.listener.Acknowledgment;
+import org.springframework.cloud.aws.messaging.listener.Visibility;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * Decides what happens to a book synchronization message that failed. Retryable failures stay
+ * on the queue but only become visible again after an exponentially growing delay based on the
+ * receive count. Permanent failures, and retryable ones that exhausted
+ * {@code sqs.redelivery.max-receive-count}, are moved to the dead-letter queue.
+ */
+@Component
+public class BookSynchronizationFailureHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSynchronizationFailureHandler.class.getName());
+
+  // upper limit of SQS for the visibility timeout of a message
+  private static final Duration MAX_VISIBILITY_TIMEOUT = Duration.ofHours(12);
+
+  private final BookSynchronizationDeadLetterQueue deadLetterQueue;
+  private final ObjectMapper objectMapper;
+  private final int maxReceiveCount;
+  private final Duration minBackoff;
+  private final Duration maxBackoff;
+
+  public BookSynchronizationFailureHandler(BookSynchronizationDeadLetterQueue deadLetterQueue,
+                                           ObjectMapper objectMapper,
+                                           @Value("${sqs.redelivery.max-receive-count:8}") int maxReceiveCount,
+                                           @Value("${sqs.redelivery.min-backoff:30s}") Duration minBackoff,
+                                           @Value("${sqs.redelivery.max-backoff:15m}") Duration maxBackoff) {
+    this.deadLetterQueue = deadLetterQueue;
+    this.objectMapper = objectMapper;
+    this.maxReceiveCount = maxReceiveCount;
+    this.minBackoff = minBackoff;
+    this.maxBackoff = maxBackoff.compareTo(MAX_VISIBILITY_TIMEOUT) > 0 ? MAX_VISIBILITY_TIMEOUT : maxBackoff;
+  }
+
+  public void handle(BookSynchronization bookSynchronization,
+                     String messageId,
+                     int receiveCount,
+                     Throwable failure,
+                     Acknowledgment acknowledgment,
+                     Visibility visibility) {
+
+    if (isRetryable(failure) && receiveCount < maxReceiveCount) {
+      Duration backoff = backoff(receiveCount);
+      LOG.warn("Failed to synchronize book with isbn '{}' on attempt {}, retrying in {}",
+        bookSynchronization.getIsbn(), receiveCount, backoff, failure);
+      // if this fails, the queue's default visibility timeout applies
+      visibility.extend((int) backoff.toSeconds());
+      return;
+    }
+
+    deadLetter(toJson(bookSynchronization), messageId, receiveCount, failure, acknowledgment);
+  }
+
+  /**
+   * Moves the message to the dead-letter queue and deletes it afterwards. If the dead-letter
+   * queue can't be reached, the message stays on the queue.
+   */
+  public void deadLetter(String body, String messageId, int receiveCount, Throwable failure, Acknowledgment acknowledgment) {
+    LOG.error("Moving message '{}' to the dead-letter queue after {} attempt(s)", messageId, receiveCount, failure);
+
+    deadLetterQueue.send(body, messageId, receiveCount, failure)
+      .thenRun(acknowledgment::acknowledge)
+      .exceptionally(error -> {
+        LOG.error("Failed to move message '{}' to the dead-letter queue, leaving it on the queue", messageId, error);
+        return null;
+      });
+  }
+
+  /**
+   * Waits {@code sqs.redelivery.min-backoff} after the first attempt and doubles with every
+   * further one, up to {@code sqs.redelivery.max-backoff}.
+   */
+  Duration backoff(int receiveCount) {
+    int doublings = Math.min(Math.max(receiveCount - 1, 0), 30);
+    Duration backoff = minBackoff.multipliedBy(1L << doublings);
+    return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+  }
+
+  /**
+   * Failures that may go away on their own, everything else, e.g. a {@link NullPointerException}
+   * for a sparse payload or a 4xx response, fails the same way on every attempt. Covers the
+   * exceptions of every metadata provider, after a fallback the listener sees RestTemplate's.
+   */
+  static boolean isRetryable(Throwable failure) {
+    return failure instanceof OpenLibraryUnavailableException
+      || failure instanceof TransientDataAccessException
+      || failure instanceof RecoverableDataAccessException
+      || failure instanceof DataAccessResourceFailureException
+      || OpenLibraryResilience.isRetryable(failure);
+  }
+
+  private String toJson(BookSynchronization bookSynchronization) {
+    try {
+      return objectMapper.writeValueAsString(bookSynchronization);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
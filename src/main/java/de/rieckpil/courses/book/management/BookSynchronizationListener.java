@@ -2,8 +2,23 @@ package de.rieckpil.courses.book.management;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.aws.messaging.listener.Acknowledgment;
+import org.springframework.cloud.aws.messaging.listener.SqsMessageDeletionPolicy;
+import org.springframework.cloud.aws.messaging.listener.Visibility;
 import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 @Component
 public class BookSynchronizationListener {
@@ -11,35 +26,137 @@ public class BookSynchronizationListener {
   private static final Logger LOG = LoggerFactory.getLogger(BookSynchronizationListener.class.getName());
 
   private final BookRepository bookRepository;
-  private final OpenLibraryApiClient openLibraryApiClient;
+  private final BookCache bookCache;
+  private final IsbnIndex isbnIndex;
+  private final IsbnBloomFilter isbnBloomFilter;
+  private final ThumbnailStore thumbnailStore;
+  private final BookMetadataBatcher bookMetadataBatcher;
+  private final ProcessedMessageStore processedMessageStore;
+  private final BookSynchronizationFailureHandler failureHandler;
+  private final Semaphore inFlightSynchronizations;
+
+  // the same ISBN often arrives in several messages at once, they share one fetch and save
+  private final Map<String, Mono<Void>> inFlightIsbns = new ConcurrentHashMap<>();
 
   public BookSynchronizationListener(BookRepository bookRepository,
-                                     OpenLibraryApiClient openLibraryApiClient) {
+                                     BookCache bookCache,
+                                     IsbnIndex isbnIndex,
+                                     IsbnBloomFilter isbnBloomFilter,
+                                     ThumbnailStore thumbnailStore,
+                                     BookMetadataBatcher bookMetadataBatcher,
+                                     ProcessedMessageStore processedMessageStore,
+                                     BookSynchronizationFailureHandler failureHandler,
+                                     @Value("${sqs.book-synchronization-max-concurrency:32}") int maxConcurrency) {
     this.bookRepository = bookRepository;
-    this.openLibraryApiClient = openLibraryApiClient;
+    this.bookCache = bookCache;
+    this.isbnIndex = isbnIndex;
+    this.isbnBloomFilter = isbnBloomFilter;
+    this.thumbnailStore = thumbnailStore;
+    this.bookMetadataBatcher = bookMetadataBatcher;
+    this.processedMessageStore = processedMessageStore;
+    this.failureHandler = failureHandler;
+    this.inFlightSynchronizations = new Semaphore(maxConcurrency);
   }
 
-  @SqsListener(value = "${sqs.book-synchronization-queue}")
-  public void consumeBookUpdates(BookSynchronization bookSynchronization) {
+  /**
+   * Returns right after starting the synchronization. The message is only deleted once the
+   * book is stored, failed synchronizations are handed to the
+   * {@link BookSynchronizationFailureHandler}. Messages processed before, by id or by ISBN, are
+   * deleted right away.
+   */
+  @SqsListener(value = "${sqs.book-synchronization-queue}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+  public void consumeBookUpdates(BookSynchronization bookSynchronization,
+                                 @Header("MessageId") String messageId,
+                                 @Header(value = "ApproximateReceiveCount", defaultValue = "1") int receiveCount,
+                                 Acknowledgment acknowledgment,
+                                 Visibility visibility) {
 
     String isbn = bookSynchronization.getIsbn();
-    LOG.info("Incoming book update for isbn '{}'", isbn);
 
-    if (isbn.length() != 13) {
-      LOG.warn("Incoming isbn for book is not 13 characters long, rejecting it");
+    if (processedMessageStore.isProcessed(messageId, isbn)) {
+      LOG.debug("Message '{}' for isbn '{}' has already been processed, rejecting it", messageId, isbn);
+      acknowledgment.acknowledge();
       return;
     }
 
-    if (bookRepository.findByIsbn(isbn) != null) {
-      LOG.debug("Book with isbn '{}' is already present, rejecting it", isbn);
-      return;
+    // blocks the polling thread once enough synchronizations are in flight
+    inFlightSynchronizations.acquireUninterruptibly();
+
+    synchronize(bookSynchronization)
+      .then(Mono.fromRunnable(() -> processedMessageStore.markProcessed(messageId, isbn))
+        .subscribeOn(Schedulers.boundedElastic()))
+      .doFinally(signal -> inFlightSynchronizations.release())
+      .subscribe(
+        ignored -> {
+        },
+        error -> failureHandler.handle(bookSynchronization, messageId, receiveCount, error, acknowledgment, visibility),
+        acknowledgment::acknowledge);
+  }
+
+  /**
+   * A payload that can't be read never will be, don't let it come back over and over again.
+   */
+  @MessageExceptionHandler(MessageConversionException.class)
+  public void rejectUnreadableMessage(MessageConversionException exception,
+                                      Message<?> message,
+                                      @Header("MessageId") String messageId,
+                                      @Header(value = "ApproximateReceiveCount", defaultValue = "1") int receiveCount,
+                                      Acknowledgment acknowledgment) {
+    failureHandler.deadLetter(String.valueOf(message.getPayload()), messageId, receiveCount, exception, acknowledgment);
+  }
+
+  public Mono<Void> synchronize(BookSynchronization bookSynchronization) {
+    return Mono.defer(() -> {
+
+      String isbn = bookSynchronization.getIsbn();
+      LOG.info("Incoming book update for isbn '{}'", isbn);
+
+      if (isbn.length() != 13) {
+        LOG.warn("Incoming isbn for book is not 13 characters long, rejecting it");
+        return Mono.empty();
+      }
+
+      if (isAlreadyPresent(isbn)) {
+        LOG.debug("Book with isbn '{}' is already present, rejecting it", isbn);
+        return Mono.empty();
+      }
+
+      return inFlightIsbns.computeIfAbsent(isbn, this::fetchAndStore);
+    });
+  }
+
+  private Mono<Void> fetchAndStore(String isbn) {
+    return bookMetadataBatcher.fetch(isbn)
+      // JPA blocks, keep it away from the HTTP client's event loop
+      .publishOn(Schedulers.boundedElastic())
+      .map(bookRepository::save)
+      .doOnNext(book -> {
+        LOG.info("Successfully stored new book '{}'", book);
+
+        thumbnailStore.prefetch(book);
+      })
+      .onErrorResume(DataIntegrityViolationException.class, e -> {
+        LOG.debug("Book with isbn '{}' has been stored in the meantime, rejecting it", isbn);
+        return Mono.empty();
+      })
+      .then()
+      // later messages for this ISBN start over, the book is found by then or the fetch is retried
+      .doFinally(signal -> inFlightIsbns.remove(isbn))
+      .cache();
+  }
+
+  private boolean isAlreadyPresent(String isbn) {
+    if (isbnBloomFilter.mightContain(isbn)) {
+      return isbnIndex.contains(isbn) || bookCache.findByIsbn(isbn) != null;
     }
 
-    Book book = openLibraryApiClient.fetchMetadataForBook(isbn);
-    book = bookRepository.save(book);
-    System.out.println(book);
+    // this instance never stored it, but the dump import or another instance may have
+    if (bookRepository.existsByIsbn(isbn)) {
+      isbnBloomFilter.put(isbn);
+      return true;
+    }
 
-    LOG.info("Successfully stored new book '{}'", book);
+    return false;
   }
 
 }
@@ -0,0 +1,172 @@
+package de.rieckpil.courses.book.management;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Sends {@link BookSynchronization} messages with SendMessageBatch, ten per request. The batches
+ * are sent asynchronously, the caller only blocks once too many of them are in flight.
+ */
+@Component
+public class BookSynchronizationPublisher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSynchronizationPublisher.class.getName());
+
+  static final int MAX_BATCH_SIZE = 10;
+
+  // same attribute QueueMessagingTemplate sets, the listener picks its converter by it
+  private static final MessageAttributeValue JSON_CONTENT_TYPE = new MessageAttributeValue()
+    .withDataType("String")
+    .withStringValue(MimeTypeUtils.APPLICATION_JSON_VALUE);
+
+  private final AmazonSQSAsync amazonSQSAsync;
+  private final ObjectMapper objectMapper;
+  private final String queueName;
+  private final Semaphore inFlightBatches;
+
+  private volatile String queueUrl;
+
+  public BookSynchronizationPublisher(AmazonSQSAsync amazonSQSAsync,
+                                      ObjectMapper objectMapper,
+                                      @Value("${sqs.book-synchronization-queue}") String queueName,
+                                      @Value("${sqs.max-in-flight-send-batches:16}") int maxInFlightBatches) {
+    this.amazonSQSAsync = amazonSQSAsync;
+    this.objectMapper = objectMapper;
+    this.queueName = queueName;
+    this.inFlightBatches = new Semaphore(maxInFlightBatches);
+  }
+
+  public CompletableFuture<EnqueueResult> enqueue(Collection<String> isbns) {
+    return enqueue(isbns, isbn -> Map.of());
+  }
+
+  /**
+   * @param messageAttributes additional string attributes of the message for an ISBN
+   * @return completes once SQS answered for every batch, ISBNs SQS didn't accept are reported as failed
+   */
+  public CompletableFuture<EnqueueResult> enqueue(Collection<String> isbns, Function<String, Map<String, String>> messageAttributes) {
+    List<String> distinctIsbns = new ArrayList<>(new LinkedHashSet<>(isbns));
+    List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+
+    for (int from = 0; from < distinctIsbns.size(); from += MAX_BATCH_SIZE) {
+      List<String> batch = distinctIsbns.subList(from, Math.min(from + MAX_BATCH_SIZE, distinctIsbns.size()));
+      batches.add(send(batch, messageAttributes));
+    }
+
+    return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+      .thenApply(ignored -> {
+        List<String> failed = new ArrayList<>();
+        batches.forEach(batch -> failed.addAll(batch.join()));
+        return new EnqueueResult(distinctIsbns.size() - failed.size(), failed);
+      });
+  }
+
+  /**
+   * @return the ISBNs of the batch SQS did not accept
+   */
+  private CompletableFuture<List<String>> send(List<String> isbns, Function<String, Map<String, String>> messageAttributes) {
+    List<SendMessageBatchRequestEntry> entries = new ArrayList<>(isbns.size());
+
+    for (int i = 0; i < isbns.size(); i++) {
+      String isbn = isbns.get(i);
+
+      Map<String, MessageAttributeValue> attributes = new HashMap<>();
+      attributes.put("contentType", JSON_CONTENT_TYPE);
+      messageAttributes.apply(isbn).forEach((name, value) ->
+        attributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(value)));
+
+      // ids only have to be unique within the batch, the position maps failures back to the ISBN
+      entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), toJson(isbn)).withMessageAttributes(attributes));
+    }
+
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    inFlightBatches.acquireUninterruptibly();
+
+    try {
+      amazonSQSAsync.sendMessageBatchAsync(new SendMessageBatchRequest(getQueueUrl(), entries),
+        new AsyncHandler<>() {
+          @Override
+          public void onError(Exception exception) {
+            inFlightBatches.release();
+            LOG.warn("Failed to enqueue {} book synchronization(s)", isbns.size(), exception);
+            result.complete(isbns);
+          }
+
+          @Override
+          public void onSuccess(SendMessageBatchRequest request, SendMessageBatchResult batchResult) {
+            inFlightBatches.release();
+            List<String> failed = new ArrayList<>();
+            for (BatchResultErrorEntry error : batchResult.getFailed()) {
+              LOG.warn("SQS rejected book synchronization: {} {}", error.getCode(), error.getMessage());
+              failed.add(isbns.get(Integer.parseInt(error.getId())));
+            }
+            result.complete(failed);
+          }
+        });
+    } catch (RuntimeException e) {
+      inFlightBatches.release();
+      throw e;
+    }
+
+    return result;
+  }
+
+  private String getQueueUrl() {
+    String url = queueUrl;
+    if (url == null) {
+      url = amazonSQSAsync.getQueueUrl(queueName).getQueueUrl();
+      queueUrl = url;
+    }
+    return url;
+  }
+
+  private String toJson(String isbn) {
+    try {
+      return objectMapper.writeValueAsString(new BookSynchronization(isbn));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static class EnqueueResult {
+
+    private final int enqueued;
+    private final List<String> failed;
+
+    EnqueueResult(int enqueued, List<String> failed) {
+      this.enqueued = enqueued;
+      this.failed = failed;
+    }
+
+    public int getEnqueued() {
+      return enqueued;
+    }
+
+    public List<String> getFailed() {
+      return failed;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package de.rieckpil.courses.book.management;
+
+public class BookSynchronizationReplayResponse {
+
+  private final int replayed;
+
+  public BookSynchronizationReplayResponse(int replayed) {
+    this.replayed = replayed;
+  }
+
+  /**
+   * @return messages moved from the dead-letter queue back to the book synchronization queue
+   */
+  public int getReplayed() {
+    return replayed;
+  }
+}
@@ -0,0 +1,27 @@
+package de.rieckpil.courses.book.management;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class BookSynchronizationRequest {
+
+  @NotEmpty
+  @Size(max = 10_000)
+  private List<String> isbns;
+
+  public BookSynchronizationRequest() {
+  }
+
+  public BookSynchronizationRequest(List<String> isbns) {
+    this.isbns = isbns;
+  }
+
+  public List<String> getIsbns() {
+    return isbns;
+  }
+
+  public void setIsbns(List<String> isbns) {
+    this.isbns = isbns;
+  }
+}
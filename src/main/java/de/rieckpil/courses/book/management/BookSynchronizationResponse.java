@@ -0,0 +1,34 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.List;
+
+public class BookSynchronizationResponse {
+
+  private final int enqueued;
+  private final List<String> failed;
+  private final List<String> rejected;
+
+  public BookSynchronizationResponse(int enqueued, List<String> failed, List<String> rejected) {
+    this.enqueued = enqueued;
+    this.failed = failed;
+    this.rejected = rejected;
+  }
+
+  public int getEnqueued() {
+    return enqueued;
+  }
+
+  /**
+   * @return valid ISBNs SQS didn't accept, they may be submitted again
+   */
+  public List<String> getFailed() {
+    return failed;
+  }
+
+  /**
+   * @return entries that are no valid ISBN-13
+   */
+  public List<String> getRejected() {
+    return rejected;
+  }
+}
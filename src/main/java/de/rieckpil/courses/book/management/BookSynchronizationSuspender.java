@@ -0,0 +1,61 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Stops polling the book synchronization queue while Open Library is unavailable, the messages
+ * stay on the queue instead of failing one after another.
+ */
+@Component
+public class BookSynchronizationSuspender {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSynchronizationSuspender.class.getName());
+
+  private final ObjectProvider<SimpleMessageListenerContainer> messageListenerContainer;
+  private final String queueName;
+
+  // stopping a queue waits for its current poll, keep that off the HTTP client's threads and in order
+  private final Scheduler scheduler = Schedulers.newSingle("book-synchronization-suspender");
+
+  public BookSynchronizationSuspender(ObjectProvider<SimpleMessageListenerContainer> messageListenerContainer,
+                                      @Value("${sqs.book-synchronization-queue}") String queueName) {
+    this.messageListenerContainer = messageListenerContainer;
+    this.queueName = queueName;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.dispose();
+  }
+
+  @EventListener
+  public void onCircuitBreakerStateChanged(OpenLibraryCircuitBreakerEvent event) {
+    scheduler.schedule(() -> apply(event.isOpen()));
+  }
+
+  private void apply(boolean open) {
+    SimpleMessageListenerContainer container = messageListenerContainer.getIfAvailable();
+
+    if (container == null || !container.isRunning()) {
+      return;
+    }
+
+    if (open && container.isRunning(queueName)) {
+      LOG.warn("Pausing consumption of '{}' while Open Library is unavailable", queueName);
+      container.stop(queueName);
+    } else if (!open && !container.isRunning(queueName)) {
+      LOG.info("Resuming consumption of '{}'", queueName);
+      container.start(queueName);
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized catalog response, plain and gzip-compressed, per catalog version so
+ * that repeated requests neither run Jackson nor compress again. Responses that can't be kept,
+ * because they are too large, the cache is full or another request is rendering them right now,
+ * are streamed by the caller instead.
+ */
+@Component
+public class CatalogResponseCache {
+
+  // every distinct fields selection gets its own entry, don't let clients grow this unbounded
+  static final int MAX_ENTRIES = 16;
+
+  private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+  // catalog version by key for which the response turned out to be too large
+  private final Map<String, Long> oversized = new ConcurrentHashMap<>();
+  private final Set<String> rendering = ConcurrentHashMap.newKeySet();
+  private final long maximumBytes;
+
+  public CatalogResponseCache(@Value("${books.response-cache.maximum-size:64MB}") DataSize maximumSize) {
+    this.maximumBytes = maximumSize.toBytes();
+  }
+
+  /**
+   * @return the response for the version, rendered with the writer if necessary, or
+   * {@code null} if the caller has to stream it
+   */
+  public CachedResponse get(long version, String key, ResponseWriter writer) {
+    CachedResponse cached = responses.get(key);
+    if (cached != null && cached.version == version) {
+      return cached;
+    }
+
+    responses.values().removeIf(response -> response.version < version);
+    oversized.values().removeIf(oversizedVersion -> oversizedVersion < version);
+
+    if (oversized.containsKey(key)
+      || (!responses.containsKey(key) && responses.size() >= MAX_ENTRIES)
+      || !rendering.add(key)) {
+      return null;
+    }
+
+    try {
+      CachedResponse rendered = render(version, writer);
+      if (rendered == null) {
+        oversized.merge(key, version, Math::max);
+        return null;
+      }
+
+      responses.merge(key, rendered, (current, candidate) -> current.version >= candidate.version ? current : candidate);
+      return rendered;
+    } finally {
+      rendering.remove(key);
+    }
+  }
+
+  public void clear() {
+    responses.clear();
+    oversized.clear();
+  }
+
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    Boolean wildcard = null;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim().toLowerCase(Locale.ROOT);
+      boolean accepted = quality(parts) > 0;
+
+      if (name.equals("gzip") || name.equals("x-gzip")) {
+        return accepted;
+      }
+      if (name.equals("*")) {
+        wildcard = accepted;
+      }
+    }
+    return Boolean.TRUE.equals(wildcard);
+  }
+
+  private static double quality(String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * @return {@code null} as soon as the response exceeds the maximum size
+   */
+  private CachedResponse render(long version, ResponseWriter writer) {
+    try {
+      ByteArrayOutputStream identity = new ByteArrayOutputStream(8192);
+      writer.writeTo(new LimitedOutputStream(identity, maximumBytes));
+      byte[] identityBytes = identity.toByteArray();
+
+      // compressed once per catalog version, so spend the extra CPU on the best ratio
+      ByteArrayOutputStream gzip = new ByteArrayOutputStream(Math.max(512, identityBytes.length / 4));
+      try (GZIPOutputStream gzipStream = new GZIPOutputStream(gzip) {
+        {
+          def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+      }) {
+        gzipStream.write(identityBytes);
+      }
+
+      return new CachedResponse(version, identityBytes, gzip.toByteArray());
+    } catch (IOException | RuntimeException e) {
+      if (isTooLarge(e)) {
+        return null;
+      }
+      throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+    }
+  }
+
+  // Jackson and the writer's callbacks wrap what the output stream throws
+  private static boolean isTooLarge(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ResponseTooLargeException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  public interface ResponseWriter {
+    void writeTo(OutputStream outputStream) throws IOException;
+  }
+
+  public static class CachedResponse {
+
+    private final long version;
+    private final byte[] identity;
+    private final byte[] gzip;
+
+    CachedResponse(long version, byte[] identity, byte[] gzip) {
+      this.version = version;
+      this.identity = identity;
+      this.gzip = gzip;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    public byte[] getIdentity() {
+      return identity;
+    }
+
+    public byte[] getGzip() {
+      return gzip;
+    }
+  }
+
+  private static class LimitedOutputStream extends FilterOutputStream {
+
+    private final long limit;
+    private long written;
+
+    LimitedOutputStream(OutputStream outputStream, long limit) {
+      super(outputStream);
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      ensureCapacity(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ensureCapacity(len);
+      out.write(b, off, len);
+    }
+
+    private void ensureCapacity(int length) {
+      written += length;
+      if (written > limit) {
+        throw new ResponseTooLargeException();
+      }
+    }
+  }
+
+  // thrown for every response that is too large, no stack trace needed
+  private static class ResponseTooLargeException extends RuntimeException {
+
+    ResponseTooLargeException() {
+      super(null, null, false, false);
+    }
+  }
+}
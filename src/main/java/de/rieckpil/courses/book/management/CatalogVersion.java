@@ -0,0 +1,46 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class CatalogVersion {
+
+  // seeded with the startup time so that ETags handed out before a restart never match again
+  private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+  public long current() {
+    return version.get();
+  }
+
+  public long increment() {
+    return version.incrementAndGet();
+  }
+
+  public void incrementAfterCommit() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          increment();
+        }
+      });
+    } else {
+      increment();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookStored(BookStoredEvent event) {
+    increment();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookRemoved(BookRemovedEvent event) {
+    increment();
+  }
+}
@@ -0,0 +1,204 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Imports the books of an Open Library editions dump ({@code ol_dump_editions_*.txt.gz}) as a
+ * one-off command, the application exits once the import is done:
+ * <pre>
+ * java -jar application.jar --spring.profiles.active=import --books.import.editions-dump=ol_dump_editions.txt.gz
+ * </pre>
+ * The {@code import} profile starts neither the web server nor the SQS listeners. The dump is
+ * decompressed while reading, editions without an ISBN-13, with incomplete metadata or that can't
+ * be parsed at all are skipped and the rest is inserted in JDBC batches, bypassing JPA. ISBNs
+ * already present are left untouched.
+ * <p>
+ * The number of committed lines is kept in a checkpoint file next to the dump, a restarted
+ * import continues from there.
+ * <p>
+ * Running application instances don't notice the imported books. Their catalog version, search
+ * and ISBN indexes and book cache live in memory, so restart them once the import is done.
+ */
+@Component
+@Profile("import")
+public class EditionsDumpImporter implements ApplicationRunner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EditionsDumpImporter.class.getName());
+
+  // has to match the increment of books_seq, see V004__SWITCH_TO_SEQUENCE_IDS.sql
+  static final int ID_BLOCK_SIZE = 50;
+
+  private static final String INSERT_BOOK = "INSERT INTO books (id, title, isbn, author, genre, thumbnail_url, description, publisher, pages) " +
+    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (isbn) DO NOTHING";
+
+  private static final int JSON_COLUMN = 4;
+  private static final int PROGRESS_INTERVAL = 1_000_000;
+
+  private final ApplicationContext applicationContext;
+  private final JdbcTemplate jdbcTemplate;
+  private final Path dump;
+  private final int batchSize;
+
+  private long nextId;
+  private long lastIdOfBlock = -1;
+
+  @Autowired
+  public EditionsDumpImporter(ApplicationContext applicationContext,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${books.import.editions-dump}") Path dump,
+                              @Value("${books.import.batch-size:5000}") int batchSize) {
+    this.applicationContext = applicationContext;
+    this.jdbcTemplate = jdbcTemplate;
+    this.dump = dump;
+    this.batchSize = batchSize;
+  }
+
+  EditionsDumpImporter(JdbcTemplate jdbcTemplate, Path dump, int batchSize) {
+    this(null, jdbcTemplate, dump, batchSize);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    importDump();
+
+    // scheduled tasks and client pools would keep the JVM running
+    System.exit(SpringApplication.exit(applicationContext));
+  }
+
+  /**
+   * @return the number of books inserted by this run
+   */
+  public long importDump() throws IOException {
+    Path checkpoint = getCheckpoint();
+    long committedLines = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+
+    LOG.info("Importing editions dump '{}', starting after line {}", dump, committedLines);
+
+    long line = 0;
+    long imported = 0;
+    long skipped = 0;
+    long startedAt = System.nanoTime();
+    List<Book> batch = new ArrayList<>(batchSize);
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+      new GZIPInputStream(Files.newInputStream(dump), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+
+      String record;
+      while ((record = reader.readLine()) != null) {
+        line++;
+
+        if (line <= committedLines) {
+          continue;
+        }
+
+        Book book = toBook(record);
+        if (book == null) {
+          skipped++;
+        } else {
+          batch.add(book);
+        }
+
+        if (batch.size() == batchSize) {
+          imported += insert(batch);
+          writeCheckpoint(checkpoint, line);
+        }
+
+        if (line % PROGRESS_INTERVAL == 0) {
+          long seconds = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000_000L);
+          LOG.info("Read {} lines of '{}', {} books imported, {} editions skipped ({} lines/s)",
+            line, dump.getFileName(), imported, skipped, (line - committedLines) / seconds);
+        }
+      }
+
+      imported += insert(batch);
+      writeCheckpoint(checkpoint, line);
+    }
+
+    LOG.info("Finished importing '{}' with {} lines, {} books imported, {} editions skipped",
+      dump, line, imported, skipped);
+
+    if (imported > 0) {
+      LOG.info("Restart the running application instances to serve the imported books");
+    }
+
+    return imported;
+  }
+
+  Path getCheckpoint() {
+    return dump.resolveSibling(dump.getFileName() + ".checkpoint");
+  }
+
+  private Book toBook(String record) {
+    // type, key, revision, last modified, JSON
+    String[] columns = record.split("\t", JSON_COLUMN + 1);
+
+    if (columns.length <= JSON_COLUMN || !"/type/edition".equals(columns[0])) {
+      return null;
+    }
+
+    try {
+      return OpenLibraryBookExtractor.extractEdition(columns[JSON_COLUMN]);
+    } catch (IOException | RuntimeException e) {
+      // a single broken record must not abort an import of millions
+      LOG.debug("Skipping unparsable edition '{}'", columns[1], e);
+      return null;
+    }
+  }
+
+  private long insert(List<Book> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    List<Object[]> rows = new ArrayList<>(batch.size());
+    for (Book book : batch) {
+      rows.add(new Object[]{nextId(), book.getTitle(), book.getIsbn(), book.getAuthor(), book.getGenre(),
+        book.getThumbnailUrl(), book.getDescription(), book.getPublisher(), book.getPages()});
+    }
+
+    long inserted = 0;
+    for (int count : jdbcTemplate.batchUpdate(INSERT_BOOK, rows)) {
+      // drivers may answer SUCCESS_NO_INFO (-2) for batched statements
+      inserted += count == 0 ? 0 : 1;
+    }
+
+    batch.clear();
+    return inserted;
+  }
+
+  // takes ids the same way Hibernate's pooled-lo optimizer does, one sequence call per block
+  private long nextId() {
+    if (nextId > lastIdOfBlock) {
+      nextId = jdbcTemplate.queryForObject("SELECT nextval('books_seq')", Long.class);
+      lastIdOfBlock = nextId + ID_BLOCK_SIZE - 1;
+    }
+    return nextId++;
+  }
+
+  private static void writeCheckpoint(Path checkpoint, long line) throws IOException {
+    Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    Files.writeString(temporary, Long.toString(line));
+    Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
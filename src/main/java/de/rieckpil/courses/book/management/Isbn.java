@@ -0,0 +1,82 @@
+package de.rieckpil.courses.book.management;
+
+public final class Isbn {
+
+  public static final long INVALID = -1L;
+
+  private final long value;
+
+  private Isbn(long value) {
+    this.value = value;
+  }
+
+  public static Isbn of(String isbn) {
+    long packed = pack(isbn);
+    if (packed == INVALID) {
+      throw new IllegalArgumentException("'" + isbn + "' is not a valid ISBN-13");
+    }
+    return new Isbn(packed);
+  }
+
+  public static Isbn of(long packed) {
+    if (packed < 978_000_000_000_0L || packed > 979_999_999_999_9L) {
+      throw new IllegalArgumentException(packed + " is not a valid ISBN-13");
+    }
+    return new Isbn(packed);
+  }
+
+  public static boolean isValid(CharSequence isbn) {
+    return pack(isbn) != INVALID;
+  }
+
+  /**
+   * Packs the 13 digits of an ISBN into a long without allocating, or returns {@link #INVALID}
+   * when the input is not a 978/979 ISBN-13 with a correct check digit.
+   */
+  public static long pack(CharSequence isbn) {
+    if (isbn == null || isbn.length() != 13) {
+      return INVALID;
+    }
+
+    long value = 0;
+    int checksum = 0;
+
+    for (int i = 0; i < 13; i++) {
+      char c = isbn.charAt(i);
+      if (c < '0' || c > '9') {
+        return INVALID;
+      }
+      int digit = c - '0';
+      value = value * 10 + digit;
+      if (i < 12) {
+        checksum += (i % 2 == 0) ? digit : 3 * digit;
+      } else if ((10 - checksum % 10) % 10 != digit) {
+        return INVALID;
+      }
+    }
+
+    long prefix = value / 10_000_000_000L;
+    return prefix == 978 || prefix == 979 ? value : INVALID;
+  }
+
+  public long toLong() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Isbn)) return false;
+    return value == ((Isbn) o).value;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(value);
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(value);
+  }
+}
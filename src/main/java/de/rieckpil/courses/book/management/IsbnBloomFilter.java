@@ -0,0 +1,68 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class IsbnBloomFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IsbnBloomFilter.class.getName());
+
+  private final BookManagementService bookManagementService;
+  private final ScalableBloomFilter filter;
+
+  // until the filter is seeded a negative answer would not mean anything
+  private volatile boolean seeded;
+
+  public IsbnBloomFilter(BookManagementService bookManagementService,
+                         MeterRegistry meterRegistry,
+                         @Value("${books.isbn-filter.initial-capacity:100000}") int initialCapacity,
+                         @Value("${books.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+    this.bookManagementService = bookManagementService;
+    this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+
+    Gauge.builder("books.isbn.filter.false-positive-rate", filter, ScalableBloomFilter::expectedFalsePositiveRate)
+      .description("Expected false-positive rate of the ISBN Bloom filter at its current fill")
+      .register(meterRegistry);
+    Gauge.builder("books.isbn.filter.size", filter, ScalableBloomFilter::bitSize)
+      .baseUnit("bits")
+      .register(meterRegistry);
+    Gauge.builder("books.isbn.filter.entries", filter, ScalableBloomFilter::approximateEntries)
+      .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void seed() {
+    bookManagementService.streamBookIdentities(identity -> put(identity.getIsbn()));
+    seeded = true;
+    LOG.info("Seeded ISBN Bloom filter with {} entries across {} stage(s)",
+      filter.approximateEntries(), filter.stageCount());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookStored(BookStoredEvent event) {
+    put(event.getBook().getIsbn());
+  }
+
+  /**
+   * @return {@code false} only if the ISBN has definitely never been stored by this instance
+   */
+  public boolean mightContain(String isbn) {
+    long key = Isbn.pack(isbn);
+    return !seeded || key == Isbn.INVALID || filter.mightContain(key);
+  }
+
+  public void put(String isbn) {
+    long key = Isbn.pack(isbn);
+    if (key != Isbn.INVALID) {
+      filter.put(key);
+    }
+  }
+}
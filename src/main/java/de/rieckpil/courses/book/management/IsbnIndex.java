@@ -0,0 +1,107 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.locks.StampedLock;
+
+@Component
+public class IsbnIndex {
+
+  public static final long UNKNOWN = LongLongHashMap.NO_VALUE;
+
+  private static final Logger LOG = LoggerFactory.getLogger(IsbnIndex.class.getName());
+
+  private final BookManagementService bookManagementService;
+  private final LongLongHashMap bookIdsByIsbn = new LongLongHashMap(1024);
+  private final StampedLock lock = new StampedLock();
+
+  public IsbnIndex(BookManagementService bookManagementService) {
+    this.bookManagementService = bookManagementService;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    bookManagementService.streamBookIdentities(identity -> put(identity.getIsbn(), identity.getId()));
+    LOG.info("Loaded {} ISBNs into the in-memory index", size());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookStored(BookStoredEvent event) {
+    put(event.getBook().getIsbn(), event.getBook().getId());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookRemoved(BookRemovedEvent event) {
+    remove(event.getBook().getIsbn());
+  }
+
+  public boolean contains(String isbn) {
+    return findBookId(isbn) != UNKNOWN;
+  }
+
+  public long findBookId(String isbn) {
+    long key = Isbn.pack(isbn);
+
+    if (key == Isbn.INVALID) {
+      return UNKNOWN;
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    long bookId = bookIdsByIsbn.get(key);
+
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        bookId = bookIdsByIsbn.get(key);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    return bookId;
+  }
+
+  public void put(String isbn, Long bookId) {
+    long key = Isbn.pack(isbn);
+
+    if (key == Isbn.INVALID || bookId == null) {
+      return;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      bookIdsByIsbn.put(key, bookId);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void remove(String isbn) {
+    long key = Isbn.pack(isbn);
+
+    if (key == Isbn.INVALID) {
+      return;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      bookIdsByIsbn.remove(key);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return bookIdsByIsbn.size();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from positive long keys to long values with linear probing. Keys and values
+ * are interleaved in a single array so that a reader always sees one consistent table. Not
+ * thread-safe on its own, see {@link IsbnIndex} for the locking around it.
+ */
+final class LongLongHashMap {
+
+  static final long NO_VALUE = -1L;
+
+  private static final long EMPTY = 0L;
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] table;
+  private int size;
+
+  LongLongHashMap(int expectedSize) {
+    this.table = new long[2 * capacityFor(expectedSize)];
+  }
+
+  long get(long key) {
+    long[] current = table;
+    int mask = (current.length >> 1) - 1;
+
+    for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+      long existing = current[2 * slot];
+      if (existing == key) {
+        return current[2 * slot + 1];
+      }
+      if (existing == EMPTY) {
+        return NO_VALUE;
+      }
+    }
+  }
+
+  void put(long key, long value) {
+    if (key <= 0) {
+      throw new IllegalArgumentException("Only positive keys are supported");
+    }
+
+    if (2 * (size + 1) > table.length >> 1) {
+      resize(table.length);
+    }
+
+    int mask = (table.length >> 1) - 1;
+
+    for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+      long existing = table[2 * slot];
+      if (existing == key) {
+        table[2 * slot + 1] = value;
+        return;
+      }
+      if (existing == EMPTY) {
+        table[2 * slot + 1] = value;
+        table[2 * slot] = key;
+        size++;
+        return;
+      }
+    }
+  }
+
+  boolean remove(long key) {
+    int mask = (table.length >> 1) - 1;
+
+    for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+      long existing = table[2 * slot];
+      if (existing == EMPTY) {
+        return false;
+      }
+      if (existing == key) {
+        shiftBackFrom(slot, mask);
+        size--;
+        return true;
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(table, EMPTY);
+    size = 0;
+  }
+
+  // backward-shift deletion keeps probe sequences intact without tombstones
+  private void shiftBackFrom(int freeSlot, int mask) {
+    int slot = freeSlot;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long key = table[2 * slot];
+      if (key == EMPTY) {
+        table[2 * freeSlot] = EMPTY;
+        table[2 * freeSlot + 1] = 0L;
+        return;
+      }
+      int home = slot(key, mask);
+      boolean movable = freeSlot <= slot
+        ? home <= freeSlot || home > slot
+        : home <= freeSlot && home > slot;
+      if (movable) {
+        table[2 * freeSlot + 1] = table[2 * slot + 1];
+        table[2 * freeSlot] = key;
+        freeSlot = slot;
+      }
+    }
+  }
+
+  private void resize(int newCapacity) {
+    long[] old = table;
+    long[] resized = new long[2 * newCapacity];
+    int mask = newCapacity - 1;
+
+    for (int i = 0; i < old.length; i += 2) {
+      long key = old[i];
+      if (key != EMPTY) {
+        int slot = slot(key, mask);
+        while (resized[2 * slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        resized[2 * slot] = key;
+        resized[2 * slot + 1] = old[i + 1];
+      }
+    }
+
+    table = resized;
+  }
+
+  private static int slot(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2 * expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
@@ -1,49 +1,133 @@
 package de.rieckpil.courses.book.management;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.util.retry.Retry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
-public class OpenLibraryApiClient {
+public class OpenLibraryApiClient implements BookMetadataProvider {
+
+  // keeps the query string well below common URL length limits
+  static final int MAX_BIBKEYS_PER_REQUEST = 50;
+
+  private static final int CONCURRENT_REQUESTS = 4;
 
   private final WebClient openLibraryWebClient;
+  private final BookMetadataCache bookMetadataCache;
+  private final OpenLibraryResilience openLibraryResilience;
+  private final OpenLibraryRateLimiter openLibraryRateLimiter;
 
-  public OpenLibraryApiClient(WebClient openLibraryWebClient) {
+  public OpenLibraryApiClient(@Qualifier("openLibraryWebClient") WebClient openLibraryWebClient,
+                              BookMetadataCache bookMetadataCache,
+                              OpenLibraryResilience openLibraryResilience,
+                              OpenLibraryRateLimiter openLibraryRateLimiter) {
     this.openLibraryWebClient = openLibraryWebClient;
+    this.bookMetadataCache = bookMetadataCache;
+    this.openLibraryResilience = openLibraryResilience;
+    this.openLibraryRateLimiter = openLibraryRateLimiter;
+  }
+
+  @Override
+  public String getName() {
+    return "web-client";
   }
 
   public Book fetchMetadataForBook(String isbn) {
+    return retrieveMetadataForBook(isbn).block();
+  }
+
+  public Mono<Book> retrieveMetadataForBook(String isbn) {
+    return retrieveMetadataForBooks(List.of(isbn))
+      .flatMap(books -> Mono.justOrEmpty(books.get(isbn)))
+      .switchIfEmpty(Mono.error(() -> new IllegalStateException("No metadata found for isbn '" + isbn + "'")));
+  }
+
+  public Map<String, Book> fetchMetadataForBooks(Collection<String> isbns) {
+    return retrieveMetadataForBooks(isbns).block();
+  }
+
+  /**
+   * Fetches the metadata of all given books with one request per {@value #MAX_BIBKEYS_PER_REQUEST}
+   * ISBNs. ISBNs Open Library doesn't know are missing in the result. Cached lookups, including
+   * ISBNs recently reported as unknown, don't hit Open Library at all.
+   */
+  @Override
+  public Mono<Map<String, Book>> retrieveMetadataForBooks(Collection<String> isbns) {
+    return Mono.defer(() -> {
+      Map<String, Book> cached = new LinkedHashMap<>();
+      List<String> uncachedIsbns = new ArrayList<>();
 
-    ObjectNode result = openLibraryWebClient.get().uri("/api/books",
+      for (String isbn : new LinkedHashSet<>(isbns)) {
+        bookMetadataCache.lookup(isbn).ifPresentOrElse(metadata -> {
+          if (!metadata.isNotFound()) {
+            cached.put(isbn, metadata.getBook());
+          }
+        }, () -> uncachedIsbns.add(isbn));
+      }
+
+      List<List<String>> chunks = new ArrayList<>();
+
+      for (int from = 0; from < uncachedIsbns.size(); from += MAX_BIBKEYS_PER_REQUEST) {
+        chunks.add(uncachedIsbns.subList(from, Math.min(from + MAX_BIBKEYS_PER_REQUEST, uncachedIsbns.size())));
+      }
+
+      return Flux.fromIterable(chunks)
+        .flatMap(this::requestMetadata, CONCURRENT_REQUESTS)
+        .collect(() -> cached, Map::putAll);
+    });
+  }
+
+  private Mono<Map<String, Book>> requestMetadata(List<String> isbns) {
+    String bibkeys = isbns.stream()
+      .map(isbn -> "ISBN:" + isbn)
+      .collect(Collectors.joining(","));
+
+    return openLibraryWebClient.get().uri("/api/books",
       uriBuilder -> uriBuilder.queryParam("jscmd", "data")
         .queryParam("format", "json")
-        .queryParam("bibkeys", "ISBN:" + isbn)
+        .queryParam("bibkeys", bibkeys)
         .build())
       .retrieve()
-      .bodyToMono(ObjectNode.class)
-      .retryWhen(Retry.fixedDelay(2, Duration.ofMillis(200)))
-      .block();
-
-    JsonNode content = result.get("ISBN:" + isbn);
-
-    return convertToBook(isbn, content);
-  }
-
-  private Book convertToBook(String isbn, JsonNode content) {
-    Book book = new Book();
-    book.setIsbn(isbn);
-    book.setThumbnailUrl(content.get("cover").get("small").asText());
-    book.setTitle(content.get("title").asText());
-    book.setAuthor(content.get("authors").get(0).get("name").asText());
-    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
-    book.setPages(content.get("number_of_pages").asLong(0));
-    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
-    book.setGenre(content.get("subjects") == null ? "n.A" : content.get("subjects").get(0).get("name").asText("n.A."));
-    return book;
+      .bodyToFlux(DataBuffer.class)
+      .as(DataBufferUtils::join)
+      .map(body -> extractBooks(body, isbns))
+      // inside the retries, every attempt counts against the rate limit
+      .transform(openLibraryRateLimiter::throttle)
+      .transform(openLibraryResilience::decorate)
+      .doOnNext(books -> remember(isbns, books));
+  }
+
+  private void remember(List<String> isbns, Map<String, Book> books) {
+    for (String isbn : isbns) {
+      Book book = books.get(isbn);
+      if (book != null) {
+        bookMetadataCache.put(book);
+      } else {
+        bookMetadataCache.putNotFound(isbn);
+      }
+    }
+  }
+
+  private static Map<String, Book> extractBooks(DataBuffer body, List<String> isbns) {
+    try (InputStream inputStream = body.asInputStream(true)) {
+      return OpenLibraryBookExtractor.extractBooks(inputStream, isbns);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
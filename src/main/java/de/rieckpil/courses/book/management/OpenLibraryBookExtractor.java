@@ -0,0 +1,261 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pulls the fields a {@link Book} needs out of an Open Library {@code /api/books?jscmd=data}
+ * response while streaming over it. Everything else, e.g. the large {@code subjects},
+ * {@code ebooks} or {@code links} arrays, is skipped token by token without building a tree.
+ * <p>
+ * Edition records of the Open Library data dumps are mapped with the same rules.
+ */
+final class OpenLibraryBookExtractor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OpenLibraryBookExtractor.class.getName());
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String COVER_URL = "https://covers.openlibrary.org/b/id/%d-S.jpg";
+
+  private OpenLibraryBookExtractor() {
+  }
+
+  /**
+   * @return the books found for the requested ISBNs, ISBNs without (complete) metadata are missing
+   */
+  static Map<String, Book> extractBooks(InputStream payload, Collection<String> isbns) throws IOException {
+    Map<String, String> isbnsByBibkey = new HashMap<>();
+    for (String isbn : isbns) {
+      isbnsByBibkey.put("ISBN:" + isbn, isbn);
+    }
+
+    Map<String, Book> books = new LinkedHashMap<>();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a JSON object from Open Library but got " + parser.currentToken());
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String isbn = isbnsByBibkey.get(parser.getCurrentName());
+
+        if (parser.nextToken() != JsonToken.START_OBJECT || isbn == null) {
+          parser.skipChildren();
+          continue;
+        }
+
+        Book book = readBook(parser, isbn);
+        if (book != null) {
+          books.put(isbn, book);
+        }
+      }
+    }
+
+    return books;
+  }
+
+  /**
+   * Maps the JSON column of an editions dump record. Dump editions only reference their
+   * authors by key, so the author is taken from the {@code by_statement}.
+   *
+   * @return {@code null} for editions without an ISBN-13 or with incomplete metadata
+   */
+  static Book extractEdition(String edition) throws IOException {
+    String isbn = null;
+    String title = null;
+    String thumbnailUrl = null;
+    String author = null;
+    String publisher = null;
+    Long pages = null;
+    String description = "n.A";
+    String genre = "n.A";
+
+    try (JsonParser parser = JSON_FACTORY.createParser(edition)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a JSON object for the edition but got " + parser.currentToken());
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+
+        switch (field) {
+          case "isbn_13" -> isbn = normalizeIsbn(firstElement(parser, value));
+          case "title" -> title = scalar(parser, value);
+          case "covers" -> thumbnailUrl = cover(firstElement(parser, value));
+          case "by_statement" -> author = scalar(parser, value);
+          case "publishers" -> publisher = orDefault(firstElement(parser, value));
+          case "number_of_pages" -> pages = value.isScalarValue() ? parser.getValueAsLong(0) : skip(parser, 0L);
+          // either plain text or {"type": "/type/text", "value": "..."}
+          case "notes" -> description = orDefault(value == JsonToken.START_OBJECT
+            ? field(parser, value, "value")
+            : scalar(parser, value));
+          case "subjects" -> genre = orDefault(firstElement(parser, value));
+          default -> parser.skipChildren();
+        }
+      }
+    }
+
+    if (isbn == null || title == null || thumbnailUrl == null || author == null || publisher == null || pages == null) {
+      return null;
+    }
+
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setThumbnailUrl(thumbnailUrl);
+    book.setTitle(title);
+    book.setAuthor(author);
+    book.setPublisher(publisher);
+    book.setPages(pages);
+    book.setDescription(description);
+    book.setGenre(genre);
+    return book;
+  }
+
+  private static Book readBook(JsonParser parser, String isbn) throws IOException {
+    String title = null;
+    String thumbnailUrl = null;
+    String author = null;
+    String publisher = null;
+    Long pages = null;
+    String description = "n.A";
+    String genre = "n.A";
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+
+      switch (field) {
+        case "title" -> title = scalar(parser, value);
+        case "cover" -> thumbnailUrl = field(parser, value, "small");
+        case "authors" -> author = fieldOfFirstElement(parser, value, "name");
+        case "publishers" -> publisher = orDefault(fieldOfFirstElement(parser, value, "name"));
+        case "number_of_pages" -> pages = value.isScalarValue() ? parser.getValueAsLong(0) : skip(parser, 0L);
+        case "notes" -> description = value == JsonToken.VALUE_NULL ? "n.A." : value.isScalarValue() ? parser.getText() : skip(parser, "");
+        case "subjects" -> genre = orDefault(fieldOfFirstElement(parser, value, "name"));
+        default -> parser.skipChildren();
+      }
+    }
+
+    if (title == null || thumbnailUrl == null || author == null || publisher == null || pages == null) {
+      LOG.warn("Skipping incomplete metadata for isbn '{}'", isbn);
+      return null;
+    }
+
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setThumbnailUrl(thumbnailUrl);
+    book.setTitle(title);
+    book.setAuthor(author);
+    book.setPublisher(publisher);
+    book.setPages(pages);
+    book.setDescription(description);
+    book.setGenre(genre);
+    return book;
+  }
+
+  private static String scalar(JsonParser parser, JsonToken value) throws IOException {
+    return value.isScalarValue() ? parser.getValueAsString() : skip(parser, null);
+  }
+
+  // reads a single scalar field of an object and skips its siblings
+  private static String field(JsonParser parser, JsonToken value, String name) throws IOException {
+    if (value != JsonToken.START_OBJECT) {
+      return skip(parser, null);
+    }
+
+    String result = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      boolean wanted = name.equals(parser.getCurrentName());
+      JsonToken fieldValue = parser.nextToken();
+
+      if (wanted) {
+        result = scalar(parser, fieldValue);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  private static String fieldOfFirstElement(JsonParser parser, JsonToken value, String name) throws IOException {
+    if (value != JsonToken.START_ARRAY) {
+      return skip(parser, null);
+    }
+
+    String result = null;
+    boolean first = true;
+    JsonToken element;
+
+    while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (first) {
+        result = field(parser, element, name);
+        first = false;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  private static String firstElement(JsonParser parser, JsonToken value) throws IOException {
+    if (value != JsonToken.START_ARRAY) {
+      return skip(parser, null);
+    }
+
+    String result = null;
+    boolean first = true;
+    JsonToken element;
+
+    while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (first) {
+        result = scalar(parser, element);
+        first = false;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  private static String normalizeIsbn(String isbn) {
+    if (isbn == null) {
+      return null;
+    }
+    String digits = isbn.replace("-", "").trim();
+    return Isbn.isValid(digits) ? digits : null;
+  }
+
+  // dumps carry cover ids only, negative ids mark removed covers
+  private static String cover(String coverId) {
+    if (coverId == null) {
+      return null;
+    }
+    try {
+      long id = Long.parseLong(coverId);
+      return id > 0 ? String.format(COVER_URL, id) : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static String orDefault(String value) {
+    return value == null ? "n.A." : value;
+  }
+
+  private static <T> T skip(JsonParser parser, T result) throws IOException {
+    parser.skipChildren();
+    return result;
+  }
+}
@@ -0,0 +1,128 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens after a number of consecutive failed Open Library requests and rejects further requests
+ * until the open duration has passed. Afterwards requests are let through again, the first
+ * outcome decides whether the circuit closes or opens once more.
+ * <p>
+ * Every transition between open and not open is published as {@link OpenLibraryCircuitBreakerEvent}.
+ */
+@Component
+public class OpenLibraryCircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OpenLibraryCircuitBreaker.class.getName());
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final int failureThreshold;
+  private final long openDurationMillis;
+  private final Clock clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private long openPeriod;
+
+  @Autowired
+  public OpenLibraryCircuitBreaker(ApplicationEventPublisher applicationEventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${clients.open-library.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                   @Value("${clients.open-library.circuit-breaker.open-duration:30s}") Duration openDuration) {
+    this(applicationEventPublisher, meterRegistry, failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  OpenLibraryCircuitBreaker(ApplicationEventPublisher applicationEventPublisher, MeterRegistry meterRegistry,
+                            int failureThreshold, Duration openDuration, Clock clock) {
+    this.applicationEventPublisher = applicationEventPublisher;
+    this.failureThreshold = failureThreshold;
+    this.openDurationMillis = openDuration.toMillis();
+    this.clock = clock;
+
+    Gauge.builder("clients.open-library.circuit-breaker.open", this, breaker -> breaker.getState() == State.OPEN ? 1 : 0)
+      .register(meterRegistry);
+  }
+
+  public boolean tryAcquirePermission() {
+    long period;
+
+    synchronized (this) {
+      if (state != State.OPEN) {
+        return true;
+      }
+      if (clock.millis() - openedAt < openDurationMillis) {
+        return false;
+      }
+      period = openPeriod;
+    }
+
+    halfOpen(period);
+    return true;
+  }
+
+  public void onSuccess() {
+    synchronized (this) {
+      consecutiveFailures = 0;
+      if (state != State.HALF_OPEN) {
+        return;
+      }
+      state = State.CLOSED;
+    }
+
+    LOG.info("Open Library circuit breaker closed");
+  }
+
+  public void onFailure() {
+    long period;
+    int failures;
+
+    synchronized (this) {
+      failures = ++consecutiveFailures;
+      if (state == State.OPEN || (state == State.CLOSED && failures < failureThreshold)) {
+        return;
+      }
+      state = State.OPEN;
+      openedAt = clock.millis();
+      period = ++openPeriod;
+    }
+
+    LOG.warn("Open Library circuit breaker opened after {} consecutive failures", failures);
+    applicationEventPublisher.publishEvent(new OpenLibraryCircuitBreakerEvent(true));
+
+    // nobody asks for permission while consumption is paused, so half open on our own
+    Schedulers.parallel().schedule(() -> halfOpen(period), openDurationMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void halfOpen(long period) {
+    synchronized (this) {
+      // a timer of an earlier open period must not cut the current one short
+      if (state != State.OPEN || openPeriod != period) {
+        return;
+      }
+      state = State.HALF_OPEN;
+    }
+
+    LOG.info("Open Library circuit breaker is half open, letting requests through again");
+    applicationEventPublisher.publishEvent(new OpenLibraryCircuitBreakerEvent(false));
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+}
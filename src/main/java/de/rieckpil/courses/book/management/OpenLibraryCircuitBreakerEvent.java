@@ -0,0 +1,14 @@
+package de.rieckpil.courses.book.management;
+
+public class OpenLibraryCircuitBreakerEvent {
+
+  private final boolean open;
+
+  public OpenLibraryCircuitBreakerEvent(boolean open) {
+    this.open = open;
+  }
+
+  public boolean isOpen() {
+    return open;
+  }
+}
@@ -0,0 +1,78 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket shared by both Open Library clients. Callers never fail for lack of permits, they
+ * reserve the next free one and wait until it is due, so sustained throughput stays at the
+ * configured rate and bursts never exceed the bucket size.
+ */
+@Component
+public class OpenLibraryRateLimiter {
+
+  private final double nanosPerPermit;
+  private final double maxPermits;
+  private final LongSupplier nanoTime;
+
+  private double storedPermits;
+  private long refilledAt;
+
+  @Autowired
+  public OpenLibraryRateLimiter(@Value("${clients.open-library.rate-limit.permits-per-second:10}") double permitsPerSecond,
+                                @Value("${clients.open-library.rate-limit.burst:5}") int burst) {
+    this(permitsPerSecond, burst, System::nanoTime);
+  }
+
+  OpenLibraryRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+    this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+    this.maxPermits = Math.max(1, burst);
+    this.nanoTime = nanoTime;
+    this.storedPermits = maxPermits;
+    this.refilledAt = nanoTime.getAsLong();
+  }
+
+  /**
+   * Delays the subscription to the request until a permit is available, every resubscription
+   * (e.g. a retry) takes another permit.
+   */
+  public <T> Mono<T> throttle(Mono<T> request) {
+    return Mono.defer(() -> {
+      long waitNanos = reserve();
+      return waitNanos == 0 ? request : Mono.delay(Duration.ofNanos(waitNanos)).then(request);
+    });
+  }
+
+  public void acquire() {
+    long waitNanos = reserve();
+
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for an Open Library permit", e);
+      }
+    }
+  }
+
+  /**
+   * @return the nanoseconds to wait before the reserved permit may be used
+   */
+  synchronized long reserve() {
+    long now = nanoTime.getAsLong();
+
+    storedPermits = Math.min(maxPermits, storedPermits + (now - refilledAt) / nanosPerPermit);
+    refilledAt = now;
+
+    // going into debt makes later callers wait for the permits reserved before them
+    storedPermits -= 1;
+    return storedPermits >= 0 ? 0 : (long) Math.ceil(-storedPermits * nanosPerPermit);
+  }
+}
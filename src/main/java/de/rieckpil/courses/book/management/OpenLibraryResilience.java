@@ -0,0 +1,168 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps requests to Open Library with a circuit breaker, jittered exponential backoff for
+ * transient failures and, if enabled, a hedged second request once the first one takes longer
+ * than the recent 95th percentile.
+ */
+@Component
+public class OpenLibraryResilience {
+
+  // below that the percentile doesn't tell much, don't hedge yet
+  private static final long MIN_SAMPLES_FOR_HEDGING = 20;
+
+  private final OpenLibraryCircuitBreaker circuitBreaker;
+  private final Timer requests;
+  private final Retry retry;
+  private final boolean hedging;
+  private final Duration minimumHedgingDelay;
+
+  public OpenLibraryResilience(OpenLibraryCircuitBreaker circuitBreaker,
+                               MeterRegistry meterRegistry,
+                               @Value("${clients.open-library.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${clients.open-library.retry.min-backoff:200ms}") Duration minBackoff,
+                               @Value("${clients.open-library.retry.max-backoff:5s}") Duration maxBackoff,
+                               @Value("${clients.open-library.hedging.enabled:false}") boolean hedging,
+                               @Value("${clients.open-library.hedging.minimum-delay:100ms}") Duration minimumHedgingDelay) {
+    this.circuitBreaker = circuitBreaker;
+    this.hedging = hedging;
+    this.minimumHedgingDelay = minimumHedgingDelay;
+
+    this.requests = Timer.builder("clients.open-library.requests")
+      .publishPercentiles(0.95)
+      .register(meterRegistry);
+
+    this.retry = Retry.backoff(maxAttempts - 1L, minBackoff)
+      .maxBackoff(maxBackoff)
+      .jitter(0.5)
+      .filter(OpenLibraryResilience::isRetryable)
+      .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+  }
+
+  public <T> Mono<T> decorate(Mono<T> request) {
+    return Mono.defer(() -> {
+      if (!circuitBreaker.tryAcquirePermission()) {
+        return Mono.error(new OpenLibraryUnavailableException("Open Library circuit breaker is open"));
+      }
+
+      return hedge(timed(request))
+        .retryWhen(retry)
+        .doOnSuccess(ignored -> circuitBreaker.onSuccess())
+        .doOnError(error -> {
+          // a request Open Library rejects tells nothing about its health
+          if (isRetryable(error)) {
+            circuitBreaker.onFailure();
+          } else {
+            circuitBreaker.onSuccess();
+          }
+        });
+    });
+  }
+
+  Duration hedgingDelay() {
+    if (requests.count() < MIN_SAMPLES_FOR_HEDGING) {
+      return null;
+    }
+
+    for (ValueAtPercentile percentile : requests.takeSnapshot().percentileValues()) {
+      long p95 = (long) percentile.value(TimeUnit.MILLISECONDS);
+      return p95 > minimumHedgingDelay.toMillis() ? Duration.ofMillis(p95) : minimumHedgingDelay;
+    }
+    return null;
+  }
+
+  static boolean isRetryable(Throwable error) {
+    // the body arrived completely, parsing it again won't help
+    if (error instanceof UncheckedIOException || error instanceof JsonProcessingException) {
+      return false;
+    }
+
+    // checked before the status, a body timing out while streaming surfaces as a response exception with status 200
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof JsonProcessingException) {
+        return false;
+      }
+      if (cause instanceof WebClientRequestException
+        || cause instanceof ResourceAccessException
+        || cause instanceof IOException
+        || cause instanceof TimeoutException
+        || cause instanceof ReadTimeoutException
+        || cause instanceof WriteTimeoutException) {
+        return true;
+      }
+    }
+
+    if (error instanceof WebClientResponseException) {
+      return isRetryable(((WebClientResponseException) error).getRawStatusCode());
+    }
+
+    if (error instanceof HttpStatusCodeException) {
+      return isRetryable(((HttpStatusCodeException) error).getRawStatusCode());
+    }
+    return false;
+  }
+
+  private static boolean isRetryable(int status) {
+    return status >= 500 || status == 429;
+  }
+
+  private <T> Mono<T> timed(Mono<T> request) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return request.doOnSuccess(ignored -> requests.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    });
+  }
+
+  private <T> Mono<T> hedge(Mono<T> request) {
+    if (!hedging) {
+      return request;
+    }
+
+    return Mono.defer(() -> {
+      Duration delay = hedgingDelay();
+      if (delay == null) {
+        return request;
+      }
+
+      // the first value wins and cancels the other request, a failing request leaves the other running
+      return Mono.firstWithValue(request, Mono.delay(delay).then(request))
+        .onErrorResume(NoSuchElementException.class, OpenLibraryResilience::firstFailure);
+    });
+  }
+
+  // neither request produced a value, report the original failure so it can be classified
+  private static <T> Mono<T> firstFailure(NoSuchElementException error) {
+    if (error.getCause() != null) {
+      for (Throwable failure : Exceptions.unwrapMultiple(error.getCause())) {
+        // sources completing empty are reported as NoSuchElementException as well
+        if (failure != null && !(failure instanceof NoSuchElementException)) {
+          return Mono.error(failure);
+        }
+      }
+    }
+    return Mono.empty();
+  }
+}
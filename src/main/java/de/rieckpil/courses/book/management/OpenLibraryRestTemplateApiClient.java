@@ -1,59 +1,133 @@
 package de.rieckpil.courses.book.management;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
-public class OpenLibraryRestTemplateApiClient {
+public class OpenLibraryRestTemplateApiClient implements BookMetadataProvider {
 
   private final RestTemplate restTemplate;
+  private final BookMetadataCache bookMetadataCache;
+  private final OpenLibraryResilience openLibraryResilience;
+  private final OpenLibraryRateLimiter openLibraryRateLimiter;
 
-  public OpenLibraryRestTemplateApiClient(RestTemplateBuilder restTemplateBuilder) {
+  public OpenLibraryRestTemplateApiClient(RestTemplateBuilder restTemplateBuilder,
+                                          BookMetadataCache bookMetadataCache,
+                                          OpenLibraryResilience openLibraryResilience,
+                                          OpenLibraryRateLimiter openLibraryRateLimiter,
+                                          @Value("${clients.open-library.base-url:https://openlibrary.org}") String openLibraryBaseUrl,
+                                          @Value("${clients.open-library.connect-timeout:2s}") Duration connectTimeout,
+                                          @Value("${clients.open-library.read-timeout:2s}") Duration readTimeout) {
+    this.bookMetadataCache = bookMetadataCache;
+    this.openLibraryResilience = openLibraryResilience;
+    this.openLibraryRateLimiter = openLibraryRateLimiter;
     this.restTemplate = restTemplateBuilder
-      .rootUri("https://openlibrary.org")
-      .setConnectTimeout(Duration.ofSeconds(2))
-      .setReadTimeout(Duration.ofSeconds(2))
+      .rootUri(openLibraryBaseUrl)
+      .setConnectTimeout(connectTimeout)
+      .setReadTimeout(readTimeout)
       .build();
   }
 
+  @Override
+  public String getName() {
+    return "rest-template";
+  }
+
   public Book fetchMetadataForBook(String isbn) {
+    Book book = fetchMetadataForBooks(List.of(isbn)).get(isbn);
+
+    if (book == null) {
+      throw new IllegalStateException("No metadata found for isbn '" + isbn + "'");
+    }
+
+    return book;
+  }
+
+  /**
+   * Blocking counterpart of {@link OpenLibraryApiClient#fetchMetadataForBooks(Collection)}, the
+   * chunks are requested one after another behind the same circuit breaker and retries.
+   */
+  public Map<String, Book> fetchMetadataForBooks(Collection<String> isbns) {
+    Map<String, Book> books = new LinkedHashMap<>();
+    List<String> uncachedIsbns = new ArrayList<>();
+
+    for (String isbn : new LinkedHashSet<>(isbns)) {
+      bookMetadataCache.lookup(isbn).ifPresentOrElse(metadata -> {
+        if (!metadata.isNotFound()) {
+          books.put(isbn, metadata.getBook());
+        }
+      }, () -> uncachedIsbns.add(isbn));
+    }
+
+    for (int from = 0; from < uncachedIsbns.size(); from += OpenLibraryApiClient.MAX_BIBKEYS_PER_REQUEST) {
+      List<String> chunk = uncachedIsbns.subList(from,
+        Math.min(from + OpenLibraryApiClient.MAX_BIBKEYS_PER_REQUEST, uncachedIsbns.size()));
+      books.putAll(requestMetadata(chunk));
+    }
+
+    return books;
+  }
+
+  @Override
+  public Mono<Map<String, Book>> retrieveMetadataForBooks(Collection<String> isbns) {
+    return Mono.fromCallable(() -> fetchMetadataForBooks(isbns))
+      .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private Map<String, Book> requestMetadata(List<String> isbns) {
+    Map<String, Book> books = Mono.fromCallable(() -> exchange(isbns))
+      .subscribeOn(Schedulers.boundedElastic())
+      .transform(openLibraryResilience::decorate)
+      .block();
+
+    for (String isbn : isbns) {
+      Book book = books.get(isbn);
+      if (book != null) {
+        bookMetadataCache.put(book);
+      } else {
+        bookMetadataCache.putNotFound(isbn);
+      }
+    }
+
+    return books;
+  }
+
+  // a single attempt, retries are throttled as well
+  private Map<String, Book> exchange(List<String> isbns) {
+    openLibraryRateLimiter.acquire();
 
     HttpHeaders headers = new HttpHeaders();
     headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
     headers.set("X-Custom-Auth", "Duke42");
     headers.set("X-Customer-Id", "42");
 
-    HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-    ObjectNode result = restTemplate
-      .exchange("/api/books?jscmd=data&format=json&bibkeys={isbn}",
-        HttpMethod.GET, entity, ObjectNode.class, "ISBN:" + isbn).getBody();
+    String bibkeys = isbns.stream()
+      .map(isbn -> "ISBN:" + isbn)
+      .collect(Collectors.joining(","));
 
-    JsonNode content = result.get("ISBN:" + isbn);
+    Map<String, Book> result = restTemplate.execute("/api/books?jscmd=data&format=json&bibkeys={bibkeys}",
+      HttpMethod.GET,
+      request -> request.getHeaders().putAll(headers),
+      response -> OpenLibraryBookExtractor.extractBooks(response.getBody(), isbns),
+      bibkeys);
 
-    return convertToBook(isbn, content);
-  }
-
-  private Book convertToBook(String isbn, JsonNode content) {
-    Book book = new Book();
-    book.setIsbn(isbn);
-    book.setThumbnailUrl(content.get("cover").get("small").asText());
-    book.setTitle(content.get("title").asText());
-    book.setAuthor(content.get("authors").get(0).get("name").asText());
-    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
-    book.setPages(content.get("number_of_pages").asLong(0));
-    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
-    book.setGenre(content.get("subjects") == null ? "n.A" : content.get("subjects").get(0).get("name").asText("n.A."));
-    return book;
+    return result == null ? Map.of() : result;
   }
 }
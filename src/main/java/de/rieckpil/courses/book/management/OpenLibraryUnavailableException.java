@@ -0,0 +1,8 @@
+package de.rieckpil.courses.book.management;
+
+public class OpenLibraryUnavailableException extends RuntimeException {
+
+  public OpenLibraryUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,144 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers processed book synchronization messages by SQS message id and by ISBN, so that
+ * redeliveries and duplicates are acknowledged without fetching anything. Recently processed
+ * messages are answered from memory, older ones from the {@code processed_messages} table which
+ * is purged once entries are older than {@code sqs.processed-messages.time-to-live}.
+ */
+@Component
+public class ProcessedMessageStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessedMessageStore.class.getName());
+
+  private static final String CACHE_NAME = "processed-messages";
+
+  private static final String FIND_PROCESSED = "SELECT processed_at FROM processed_messages " +
+    "WHERE (message_id = ? OR isbn = ?) AND processed_at > ? LIMIT 1";
+
+  private static final String INSERT_PROCESSED = "INSERT INTO processed_messages (message_id, isbn, processed_at) " +
+    "VALUES (?, ?, ?) ON CONFLICT (message_id) DO NOTHING";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+  private final int maximumSize;
+  private final long timeToLiveMillis;
+
+  private final Counter hits;
+  private final Counter misses;
+
+  // processed at, in epoch millis, by message id and by ISBN
+  private final Map<String, Long> recentMessageIds;
+  private final Map<String, Long> recentIsbns;
+
+  @Autowired
+  public ProcessedMessageStore(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${sqs.processed-messages.maximum-size:100000}") int maximumSize,
+                               @Value("${sqs.processed-messages.time-to-live:1d}") Duration timeToLive) {
+    this(jdbcTemplate, meterRegistry, maximumSize, timeToLive, Clock.systemUTC());
+  }
+
+  ProcessedMessageStore(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int maximumSize, Duration timeToLive, Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.clock = clock;
+    this.maximumSize = maximumSize;
+    this.timeToLiveMillis = timeToLive.toMillis();
+
+    this.hits = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "hit");
+    this.misses = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "miss");
+
+    this.recentMessageIds = createLruMap();
+    this.recentIsbns = createLruMap();
+  }
+
+  /**
+   * @return whether a message with the same id or for the same ISBN has already been processed
+   */
+  public boolean isProcessed(String messageId, String isbn) {
+    long notBefore = clock.millis() - timeToLiveMillis;
+
+    synchronized (this) {
+      if (isRecent(recentMessageIds, messageId, notBefore) || isRecent(recentIsbns, isbn, notBefore)) {
+        hits.increment();
+        return true;
+      }
+    }
+
+    misses.increment();
+
+    // not in memory any longer, or processed before a restart
+    List<Timestamp> processedAt = jdbcTemplate.queryForList(FIND_PROCESSED, Timestamp.class,
+      messageId, isbn, new Timestamp(notBefore));
+
+    if (processedAt.isEmpty()) {
+      return false;
+    }
+
+    remember(messageId, isbn, processedAt.get(0).getTime());
+    return true;
+  }
+
+  public void markProcessed(String messageId, String isbn) {
+    long now = clock.millis();
+    remember(messageId, isbn, now);
+    jdbcTemplate.update(INSERT_PROCESSED, messageId, isbn, new Timestamp(now));
+  }
+
+  @Scheduled(fixedDelayString = "${sqs.processed-messages.cleanup-interval:PT1H}")
+  public int purgeExpired() {
+    long notBefore = clock.millis() - timeToLiveMillis;
+
+    synchronized (this) {
+      recentMessageIds.values().removeIf(processedAt -> processedAt <= notBefore);
+      recentIsbns.values().removeIf(processedAt -> processedAt <= notBefore);
+    }
+
+    int purged = jdbcTemplate.update("DELETE FROM processed_messages WHERE processed_at <= ?", new Timestamp(notBefore));
+    LOG.debug("Purged {} expired processed message(s)", purged);
+    return purged;
+  }
+
+  synchronized int size() {
+    return recentMessageIds.size();
+  }
+
+  private synchronized void remember(String messageId, String isbn, long processedAt) {
+    recentMessageIds.put(messageId, processedAt);
+    recentIsbns.put(isbn, processedAt);
+  }
+
+  private static boolean isRecent(Map<String, Long> processed, String key, long notBefore) {
+    if (key == null) {
+      return false;
+    }
+    Long processedAt = processed.get(key);
+    return processedAt != null && processedAt > notBefore;
+  }
+
+  private Map<String, Long> createLruMap() {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > ProcessedMessageStore.this.maximumSize;
+      }
+    };
+  }
+}
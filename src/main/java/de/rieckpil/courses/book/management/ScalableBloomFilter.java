@@ -0,0 +1,136 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over long keys that adds a larger, stricter stage whenever the current stage
+ * reaches its capacity (Almeida et al., "Scalable Bloom Filters"). With a tightening ratio of
+ * 0.5 the compound false-positive rate stays below twice the configured rate.
+ */
+final class ScalableBloomFilter {
+
+  private static final int GROWTH_FACTOR = 2;
+  private static final double TIGHTENING_RATIO = 0.5;
+
+  private volatile Stage[] stages;
+
+  ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+    this.stages = new Stage[]{new Stage(initialCapacity, falsePositiveRate)};
+  }
+
+  boolean mightContain(long key) {
+    long h1 = mix64(key);
+    long h2 = mix64(h1 ^ 0x5DEECE66DL) | 1L;
+
+    for (Stage stage : stages) {
+      if (stage.mightContain(h1, h2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized void put(long key) {
+    if (mightContain(key)) {
+      return;
+    }
+
+    Stage[] current = stages;
+    Stage last = current[current.length - 1];
+
+    if (last.count() >= last.capacity) {
+      Stage[] grown = new Stage[current.length + 1];
+      System.arraycopy(current, 0, grown, 0, current.length);
+      last = new Stage(last.capacity * GROWTH_FACTOR, last.falsePositiveRate * TIGHTENING_RATIO);
+      grown[current.length] = last;
+      stages = grown;
+    }
+
+    long h1 = mix64(key);
+    last.put(h1, mix64(h1 ^ 0x5DEECE66DL) | 1L);
+  }
+
+  long bitSize() {
+    long bits = 0;
+    for (Stage stage : stages) {
+      bits += stage.bitCount;
+    }
+    return bits;
+  }
+
+  long approximateEntries() {
+    long entries = 0;
+    for (Stage stage : stages) {
+      entries += stage.count();
+    }
+    return entries;
+  }
+
+  int stageCount() {
+    return stages.length;
+  }
+
+  double expectedFalsePositiveRate() {
+    double allStagesNegative = 1.0;
+    for (Stage stage : stages) {
+      allStagesNegative *= 1.0 - stage.expectedFalsePositiveRate();
+    }
+    return 1.0 - allStagesNegative;
+  }
+
+  // finalizer of MurmurHash3, spreads the mostly sequential ISBN digits over all bits
+  private static long mix64(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  private static final class Stage {
+
+    private final int capacity;
+    private final double falsePositiveRate;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final AtomicLongArray bits;
+    private volatile int count;
+
+    Stage(int capacity, double falsePositiveRate) {
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+      long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.bitCount = Math.max(64, (optimalBits + 63) / 64 * 64);
+      this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+      this.bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+
+    boolean mightContain(long h1, long h2) {
+      for (int i = 0; i < hashFunctions; i++) {
+        long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+        if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void put(long h1, long h2) {
+      for (int i = 0; i < hashFunctions; i++) {
+        long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+        long mask = 1L << bit;
+        bits.getAndAccumulate((int) (bit >>> 6), mask, (previous, value) -> previous | value);
+      }
+      count++;
+    }
+
+    int count() {
+      return count;
+    }
+
+    double expectedFalsePositiveRate() {
+      return Math.pow(1.0 - Math.exp(-(double) hashFunctions * count / bitCount), hashFunctions);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package de.rieckpil.courses.book.management;
+
+public class Thumbnail {
+
+  private final long offset;
+  private final int length;
+  private final String contentType;
+
+  Thumbnail(long offset, int length, String contentType) {
+    this.offset = offset;
+    this.length = length;
+    this.contentType = contentType;
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+}
@@ -0,0 +1,70 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/books")
+public class ThumbnailController {
+
+  // covers are stored once per ISBN and never change afterwards
+  static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final ThumbnailStore thumbnailStore;
+  private final BookCache bookCache;
+
+  public ThumbnailController(ThumbnailStore thumbnailStore, BookCache bookCache) {
+    this.thumbnailStore = thumbnailStore;
+    this.bookCache = bookCache;
+  }
+
+  @GetMapping("/{isbn}/thumbnail")
+  public void getThumbnail(@PathVariable("isbn") String isbn,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+    Optional<Thumbnail> thumbnail = thumbnailStore.find(isbn);
+
+    if (thumbnail.isEmpty()) {
+      Book book = bookCache.findByIsbn(isbn);
+
+      if (book == null || book.getThumbnailUrl() == null) {
+        response.sendError(HttpStatus.NOT_FOUND.value());
+        return;
+      }
+
+      // don't keep the client waiting for the origin, the next request is served from the store
+      thumbnailStore.prefetch(book);
+      response.sendRedirect(book.getThumbnailUrl());
+      return;
+    }
+
+    Thumbnail result = thumbnail.get();
+    response.setContentType(result.getContentType());
+    response.setContentLength(result.getLength());
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+
+    // let Tomcat hand the file region to sendfile(2), the bytes never enter the JVM heap
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, thumbnailStore.getFile().toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, result.getOffset());
+      request.setAttribute(SENDFILE_END, result.getOffset() + result.getLength());
+    } else {
+      thumbnailStore.transferTo(result, Channels.newChannel(response.getOutputStream()));
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package de.rieckpil.courses.book.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Append-only store for book covers. Every cover is written once into a memory-mapped blob
+ * file and located through an in-memory ISBN to offset index, which is rebuilt by scanning
+ * the file on startup.
+ * <p>
+ * Record layout: magic (int), packed ISBN (long), data length (int), content type length
+ * (short), content type (ASCII), data. The magic is written last so that a record torn by a
+ * crash is never picked up again.
+ */
+@Component
+public class ThumbnailStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ThumbnailStore.class.getName());
+
+  private static final int MAGIC = 0x54484D42;
+  private static final int HEADER_BYTES = 4 + 8 + 4 + 2;
+  private static final String FILE_NAME = "thumbnails.blob";
+
+  private final WebClient coverWebClient;
+  private final Path directory;
+  private final long capacity;
+
+  private final LongLongHashMap offsetsByIsbn = new LongLongHashMap(1024);
+  private final StampedLock lock = new StampedLock();
+  private final Map<Long, Mono<Thumbnail>> inFlight = new ConcurrentHashMap<>();
+
+  private FileChannel channel;
+  private FileLock fileLock;
+  private volatile MappedByteBuffer buffer;
+  private int appendPosition;
+
+  public ThumbnailStore(@Qualifier("coverWebClient") WebClient coverWebClient,
+                        @Value("${books.thumbnails.directory:${java.io.tmpdir}/book-thumbnails}") Path directory,
+                        @Value("${books.thumbnails.capacity:256MB}") DataSize capacity) {
+    this.coverWebClient = coverWebClient;
+    this.directory = directory;
+    this.capacity = Math.min(capacity.toBytes(), Integer.MAX_VALUE);
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    Files.createDirectories(directory);
+    this.channel = FileChannel.open(getFile(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try {
+      this.fileLock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      this.fileLock = null;
+    }
+
+    if (fileLock == null) {
+      LOG.warn("Thumbnail store '{}' is used by another process, covers won't be stored locally", getFile());
+      channel.close();
+      return;
+    }
+
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    this.appendPosition = recover(mapped);
+    this.buffer = mapped;
+
+    LOG.info("Opened thumbnail store '{}' with {} covers ({} bytes)", getFile(), offsetsByIsbn.size(), appendPosition);
+  }
+
+  @PreDestroy
+  public synchronized void close() throws IOException {
+    if (buffer != null) {
+      buffer.force();
+      buffer = null;
+      fileLock.release();
+      channel.close();
+    }
+  }
+
+  public Path getFile() {
+    return directory.resolve(FILE_NAME);
+  }
+
+  public Optional<Thumbnail> find(String isbn) {
+    long key = Isbn.pack(isbn);
+    MappedByteBuffer mapped = buffer;
+
+    if (key == Isbn.INVALID || mapped == null) {
+      return Optional.empty();
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    long offset = offsetsByIsbn.get(key);
+
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        offset = offsetsByIsbn.get(key);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    return offset == LongLongHashMap.NO_VALUE ? Optional.empty() : Optional.of(readHeader(mapped, (int) offset));
+  }
+
+  public Mono<Thumbnail> fetch(String isbn, String thumbnailUrl) {
+    long key = Isbn.pack(isbn);
+
+    if (key == Isbn.INVALID || buffer == null || thumbnailUrl == null) {
+      return Mono.empty();
+    }
+
+    Optional<Thumbnail> existing = find(isbn);
+    if (existing.isPresent()) {
+      return Mono.just(existing.get());
+    }
+
+    return inFlight.computeIfAbsent(key, ignored -> coverWebClient.get()
+      .uri(URI.create(thumbnailUrl))
+      .retrieve()
+      .toEntity(byte[].class)
+      .flatMap(entity -> Mono.justOrEmpty(store(isbn, contentType(entity), entity.getBody())))
+      .doFinally(signal -> inFlight.remove(key))
+      .cache());
+  }
+
+  public void prefetch(Book book) {
+    fetch(book.getIsbn(), book.getThumbnailUrl())
+      .subscribe(
+        thumbnail -> LOG.debug("Stored cover for isbn '{}'", book.getIsbn()),
+        error -> LOG.warn("Failed to prefetch cover for isbn '{}'", book.getIsbn(), error));
+  }
+
+  public void transferTo(Thumbnail thumbnail, WritableByteChannel target) throws IOException {
+    long position = thumbnail.getOffset();
+    long remaining = thumbnail.getLength();
+
+    while (remaining > 0) {
+      long transferred = channel.transferTo(position, remaining, target);
+      position += transferred;
+      remaining -= transferred;
+    }
+  }
+
+  synchronized Thumbnail store(String isbn, String contentType, byte[] data) {
+    long key = Isbn.pack(isbn);
+    MappedByteBuffer mapped = buffer;
+
+    if (key == Isbn.INVALID || mapped == null || contentType == null || data == null || data.length == 0) {
+      return null;
+    }
+
+    Optional<Thumbnail> existing = find(isbn);
+    if (existing.isPresent()) {
+      return existing.get();
+    }
+
+    byte[] contentTypeBytes = contentType.getBytes(StandardCharsets.US_ASCII);
+    long recordBytes = (long) HEADER_BYTES + contentTypeBytes.length + data.length;
+
+    if (appendPosition + recordBytes > capacity) {
+      LOG.warn("Thumbnail store '{}' is full, not storing cover for isbn '{}'", getFile(), isbn);
+      return null;
+    }
+
+    ByteBuffer record = mapped.duplicate();
+    record.position(appendPosition + 4);
+    record.putLong(key)
+      .putInt(data.length)
+      .putShort((short) contentTypeBytes.length)
+      .put(contentTypeBytes)
+      .put(data);
+    mapped.putInt(appendPosition, MAGIC);
+
+    int recordOffset = appendPosition;
+    appendPosition += (int) recordBytes;
+
+    long stamp = lock.writeLock();
+    try {
+      offsetsByIsbn.put(key, recordOffset);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+
+    return readHeader(mapped, recordOffset);
+  }
+
+  int size() {
+    long stamp = lock.readLock();
+    try {
+      return offsetsByIsbn.size();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private int recover(MappedByteBuffer mapped) {
+    int position = 0;
+
+    while (position + HEADER_BYTES <= capacity && mapped.getInt(position) == MAGIC) {
+      long key = mapped.getLong(position + 4);
+      int length = mapped.getInt(position + 12);
+      short contentTypeLength = mapped.getShort(position + 16);
+
+      offsetsByIsbn.put(key, position);
+      position += HEADER_BYTES + contentTypeLength + length;
+    }
+
+    return position;
+  }
+
+  private static Thumbnail readHeader(MappedByteBuffer mapped, int recordOffset) {
+    int length = mapped.getInt(recordOffset + 12);
+    short contentTypeLength = mapped.getShort(recordOffset + 16);
+
+    byte[] contentType = new byte[contentTypeLength];
+    mapped.get(recordOffset + HEADER_BYTES, contentType);
+
+    return new Thumbnail(recordOffset + HEADER_BYTES + contentTypeLength, length,
+      new String(contentType, StandardCharsets.US_ASCII));
+  }
+
+  private static String contentType(ResponseEntity<byte[]> entity) {
+    MediaType contentType = entity.getHeaders().getContentType();
+
+    // covers.openlibrary.org answers with an HTML page for unknown covers
+    if (contentType == null || !"image".equals(contentType.getType())) {
+      return null;
+    }
+    return contentType.toString();
+  }
+}
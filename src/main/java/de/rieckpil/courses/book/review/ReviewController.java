@@ -2,11 +2,13 @@ package de.rieckpil.courses.book.review;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.rieckpil.courses.book.management.CatalogVersion;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -18,14 +20,20 @@ import javax.validation.Valid;
 public class ReviewController {
 
   private final ReviewService reviewService;
+  private final CatalogVersion catalogVersion;
 
-  public ReviewController(ReviewService reviewService) {
+  public ReviewController(ReviewService reviewService, CatalogVersion catalogVersion) {
     this.reviewService = reviewService;
+    this.catalogVersion = catalogVersion;
   }
 
   @GetMapping("/reviews")
   public ArrayNode getAllReviews(@RequestParam(name = "size", defaultValue = "20") Integer size,
-                                 @RequestParam(name = "orderBy", defaultValue = "none") String orderBy) {
+                                 @RequestParam(name = "orderBy", defaultValue = "none") String orderBy,
+                                 WebRequest webRequest) {
+    if (webRequest.checkNotModified("\"reviews-" + catalogVersion.current() + "-" + size + "-" + orderBy + "\"")) {
+      return null;
+    }
     return reviewService.getAllReviews(size, orderBy);
   }
 
@@ -25,4 +25,8 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
   void deleteByIdAndBookIsbn(Long reviewId, String isbn);
 
   Optional<Review> findByIdAndBookIsbn(Long reviewId, String isbn);
+
+  void deleteByIdAndBookId(Long reviewId, Long bookId);
+
+  Optional<Review> findByIdAndBookId(Long reviewId, Long bookId);
 }
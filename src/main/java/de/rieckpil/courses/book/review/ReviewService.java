@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.rieckpil.courses.book.management.Book;
-import de.rieckpil.courses.book.management.BookRepository;
+import de.rieckpil.courses.book.management.BookCache;
+import de.rieckpil.courses.book.management.CatalogVersion;
+import de.rieckpil.courses.book.management.IsbnIndex;
 import de.rieckpil.courses.book.management.UserService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -13,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Transactional
@@ -20,20 +23,25 @@ public class ReviewService {
 
   private final ReviewVerifier reviewVerifier;
   private final UserService userService;
-  private final BookRepository bookRepository;
+  private final BookCache bookCache;
   private final ReviewRepository reviewRepository;
+  private final CatalogVersion catalogVersion;
+  private final IsbnIndex isbnIndex;
   private final ObjectMapper objectMapper = new ObjectMapper();
 
-  public ReviewService(ReviewVerifier reviewVerifier, UserService userService, BookRepository bookRepository, ReviewRepository reviewRepository) {
+  public ReviewService(ReviewVerifier reviewVerifier, UserService userService, BookCache bookCache,
+                       ReviewRepository reviewRepository, CatalogVersion catalogVersion, IsbnIndex isbnIndex) {
     this.reviewVerifier = reviewVerifier;
     this.userService = userService;
-    this.bookRepository = bookRepository;
+    this.bookCache = bookCache;
     this.reviewRepository = reviewRepository;
+    this.catalogVersion = catalogVersion;
+    this.isbnIndex = isbnIndex;
   }
 
   public Long createBookReview(String isbn, BookReviewRequest bookReviewRequest, String userName, String email) {
 
-    Book book = bookRepository.findByIsbn(isbn);
+    Book book = bookCache.findByIsbn(isbn);
 
     if (book == null) {
       throw new IllegalArgumentException("Book not found");
@@ -50,6 +58,7 @@ public class ReviewService {
       review.setCreatedAt(LocalDateTime.now());
 
       review = reviewRepository.save(review);
+      catalogVersion.incrementAfterCommit();
 
       return review.getId();
     } else {
@@ -112,11 +121,24 @@ public class ReviewService {
   }
 
   public void deleteReview(String isbn, Long reviewId) {
-    this.reviewRepository.deleteByIdAndBookIsbn(reviewId, isbn);
+    long bookId = isbnIndex.findBookId(isbn);
+
+    if (bookId == IsbnIndex.UNKNOWN) {
+      this.reviewRepository.deleteByIdAndBookIsbn(reviewId, isbn);
+    } else {
+      this.reviewRepository.deleteByIdAndBookId(reviewId, bookId);
+    }
+    this.catalogVersion.incrementAfterCommit();
   }
 
   public ObjectNode getReviewById(String isbn, Long reviewId) {
-    return this.reviewRepository.findByIdAndBookIsbn(reviewId, isbn)
+    long bookId = isbnIndex.findBookId(isbn);
+
+    Optional<Review> review = bookId == IsbnIndex.UNKNOWN
+      ? this.reviewRepository.findByIdAndBookIsbn(reviewId, isbn)
+      : this.reviewRepository.findByIdAndBookId(reviewId, bookId);
+
+    return review
       .map(this::mapReview)
       .orElseThrow(ReviewNotFoundException::new);
   }
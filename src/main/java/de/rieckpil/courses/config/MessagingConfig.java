@@ -7,9 +7,17 @@ import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.AmazonSQSAsyncClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.buffered.AmazonSQSBufferedAsyncClient;
+import com.amazonaws.services.sqs.buffered.QueueBufferConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.aws.messaging.config.SimpleMessageListenerContainerFactory;
 import org.springframework.cloud.aws.messaging.core.QueueMessagingTemplate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.Duration;
 
 @Configuration
 public class MessagingConfig {
@@ -18,23 +26,26 @@ public class MessagingConfig {
   private static final AWSStaticCredentialsProvider CREDENTIALS =
     new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar"));
 
+  // upper limit of SQS for a single ReceiveMessage and DeleteMessageBatch request
+  private static final int MAX_SQS_BATCH_SIZE = 10;
+
   @Bean
-  public AmazonSQS amazonSQS() {
+  public AmazonSQS amazonSQS(@Value("${sqs.endpoint:http://localhost:9324}") String endpoint) {
     return AmazonSQSClientBuilder
       .standard()
       .withCredentials(CREDENTIALS)
       .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
-        "http://localhost:9324", "eu-central-1"
+        endpoint, "eu-central-1"
       )).build();
   }
 
   @Bean
-  public AmazonSQSAsync amazonSQSAsync() {
+  public AmazonSQSAsync amazonSQSAsync(@Value("${sqs.endpoint:http://localhost:9324}") String endpoint) {
     return AmazonSQSAsyncClientBuilder
       .standard()
       .withCredentials(CREDENTIALS)
       .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
-        "http://localhost:9324", "eu-central-1"
+        endpoint, "eu-central-1"
       )).build();
   }
 
@@ -42,4 +53,76 @@ public class MessagingConfig {
   public QueueMessagingTemplate queueMessagingTemplate(AmazonSQSAsync amazonSQSAsync) {
     return new QueueMessagingTemplate(amazonSQSAsync);
   }
+
+  /**
+   * Every poll receives up to {@code sqs.max-number-of-messages} messages which are handed to the
+   * workers in parallel, either a pool of {@code sqs.worker-pool-size} platform threads or one
+   * virtual thread per message with {@code sqs.executor=virtual}. The container waits for the
+   * whole batch before polling again, and the book synchronization listener returns right after
+   * starting its non-blocking work, so the executor mode only pays off for blocking listeners and
+   * never raises the concurrency above one batch per queue. Acknowledged messages are collected
+   * for up to {@code sqs.delete-batch-window} and deleted with a single DeleteMessageBatch
+   * request.
+   */
+  @Bean
+  public SimpleMessageListenerContainerFactory simpleMessageListenerContainerFactory(
+    AmazonSQSAsync amazonSQSAsync,
+    @Value("${sqs.max-number-of-messages:10}") int maxNumberOfMessages,
+    @Value("${sqs.wait-time:20s}") Duration waitTime,
+    @Value("${sqs.worker-pool-size:11}") int workerPoolSize,
+    @Value("${sqs.executor:platform}") SqsListenerExecutors.Mode executorMode,
+    @Value("${sqs.delete-batch-window:200ms}") Duration deleteBatchWindow,
+    @Value("${sqs.auto-startup:true}") boolean autoStartup) {
+
+    SimpleMessageListenerContainerFactory factory = new SimpleMessageListenerContainerFactory();
+    factory.setAutoStartup(autoStartup);
+    factory.setAmazonSqs(bufferedAmazonSQSAsync(amazonSQSAsync, deleteBatchWindow));
+    factory.setMaxNumberOfMessages(messagesPerPoll(maxNumberOfMessages));
+    factory.setWaitTimeOut((int) waitTime.toSeconds());
+    factory.setTaskExecutor(sqsListenerTaskExecutor(executorMode, workerPoolSize, maxNumberOfMessages));
+    return factory;
+  }
+
+  /**
+   * Only used by the listener container, everything else keeps talking to SQS directly. Deletions
+   * still waiting for their batch to fill up are sent before the client shuts down.
+   */
+  @Bean(destroyMethod = "shutdown", autowireCandidate = false)
+  public AmazonSQSBufferedAsyncClient bufferedAmazonSQSAsync(
+    AmazonSQSAsync amazonSQSAsync,
+    @Value("${sqs.delete-batch-window:200ms}") Duration deleteBatchWindow) {
+
+    // receiving is passed through as is, prefetched messages would sit invisible in memory
+    QueueBufferConfig bufferConfig = new QueueBufferConfig()
+      .withMaxBatchSize(MAX_SQS_BATCH_SIZE)
+      .withMaxBatchOpenMs(deleteBatchWindow.toMillis())
+      .withMaxInflightReceiveBatches(0)
+      .withMaxDoneReceiveBatches(0);
+
+    return new AmazonSQSBufferedAsyncClient(amazonSQSAsync, bufferConfig) {
+      @Override
+      public void shutdown() {
+        flush();
+        super.shutdown();
+      }
+    };
+  }
+
+  /**
+   * Destroyed before the buffered client, workers finishing their message still acknowledge it.
+   */
+  @Bean(autowireCandidate = false)
+  @DependsOn("bufferedAmazonSQSAsync")
+  public AsyncTaskExecutor sqsListenerTaskExecutor(
+    @Value("${sqs.executor:platform}") SqsListenerExecutors.Mode executorMode,
+    @Value("${sqs.worker-pool-size:11}") int workerPoolSize,
+    @Value("${sqs.max-number-of-messages:10}") int maxNumberOfMessages) {
+
+    // the container submits one task per message plus one for polling
+    return SqsListenerExecutors.create(executorMode, Math.max(workerPoolSize, messagesPerPoll(maxNumberOfMessages) + 1));
+  }
+
+  private static int messagesPerPoll(int maxNumberOfMessages) {
+    return Math.max(1, Math.min(maxNumberOfMessages, MAX_SQS_BATCH_SIZE));
+  }
 }
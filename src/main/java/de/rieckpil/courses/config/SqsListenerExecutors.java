@@ -0,0 +1,90 @@
+package de.rieckpil.courses.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executor the SQS listener container hands every received message to. It's meant to
+ * be a bean, the platform pool is started once its properties are set. Both modes let running
+ * messages finish for up to {@value #SHUTDOWN_TIMEOUT_SECONDS} seconds when destroyed.
+ */
+final class SqsListenerExecutors {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SqsListenerExecutors.class.getName());
+
+  private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  enum Mode {
+    /**
+     * A fixed pool of platform threads.
+     */
+    PLATFORM,
+    /**
+     * A new virtual thread per message, falls back to {@link #PLATFORM} on runtimes without
+     * (enabled) virtual threads.
+     */
+    VIRTUAL
+  }
+
+  private SqsListenerExecutors() {
+  }
+
+  static AsyncTaskExecutor create(Mode mode, int poolSize) {
+    if (mode == Mode.VIRTUAL) {
+      Optional<ExecutorService> virtualThreads = newVirtualThreadPerTaskExecutor();
+      if (virtualThreads.isPresent()) {
+        LOG.info("Processing SQS messages on virtual threads");
+        return new VirtualThreadTaskExecutor(virtualThreads.get());
+      }
+      LOG.warn("Virtual threads are not available on Java {}, using {} platform threads instead",
+        Runtime.version().feature(), poolSize);
+    }
+
+    ThreadPoolTaskExecutor workers = new ThreadPoolTaskExecutor();
+    workers.setThreadNamePrefix("sqs-worker-");
+    workers.setWaitForTasksToCompleteOnShutdown(true);
+    workers.setAwaitTerminationSeconds(SHUTDOWN_TIMEOUT_SECONDS);
+    workers.setCorePoolSize(poolSize);
+    workers.setMaxPoolSize(poolSize);
+    return workers;
+  }
+
+  // looked up reflectively as long as the build targets Java 17
+  static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+    try {
+      return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      // Java 19 and 20 throw an UnsupportedOperationException unless preview features are enabled
+      return Optional.empty();
+    }
+  }
+
+  private static class VirtualThreadTaskExecutor extends TaskExecutorAdapter implements DisposableBean {
+
+    private final ExecutorService executorService;
+
+    VirtualThreadTaskExecutor(ExecutorService executorService) {
+      super(executorService);
+      this.executorService = executorService;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+      executorService.shutdown();
+      if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOG.warn("SQS messages still running after {} seconds, interrupting them", SHUTDOWN_TIMEOUT_SECONDS);
+        executorService.shutdownNow();
+      }
+    }
+  }
+}
@@ -7,25 +7,93 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebClientConfig {
 
+  /**
+   * Dedicated pool for Open Library, its pool metrics are exported as
+   * {@code reactor.netty.connection.provider.*} tagged with {@code name=open-library}.
+   */
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider openLibraryConnectionProvider(
+    @Value("${clients.open-library.pool.max-connections:50}") int maxConnections,
+    @Value("${clients.open-library.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+    @Value("${clients.open-library.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+    @Value("${clients.open-library.pool.max-idle-time:30s}") Duration maxIdleTime,
+    @Value("${clients.open-library.pool.max-life-time:5m}") Duration maxLifeTime,
+    @Value("${clients.open-library.pool.eviction-interval:30s}") Duration evictionInterval) {
+
+    return ConnectionProvider.builder("open-library")
+      .maxConnections(maxConnections)
+      .pendingAcquireMaxCount(pendingAcquireMaxCount)
+      .pendingAcquireTimeout(pendingAcquireTimeout)
+      // Open Library closes idle connections on its own, don't hand out one it already dropped
+      .maxIdleTime(maxIdleTime)
+      .maxLifeTime(maxLifeTime)
+      .evictInBackground(evictionInterval)
+      .metrics(true)
+      .build();
+  }
+
   @Bean
   public WebClient openLibraryWebClient(@Value("${clients.open-library.base-url}") String openLibraryBaseUrl,
+                                        @Value("${clients.open-library.connect-timeout:2s}") Duration connectTimeout,
+                                        @Value("${clients.open-library.read-timeout:2s}") Duration readTimeout,
+                                        @Value("${clients.open-library.write-timeout:2s}") Duration writeTimeout,
+                                        @Value("${clients.open-library.keep-alive:true}") boolean keepAlive,
+                                        @Value("${clients.open-library.http2:false}") boolean http2,
+                                        @Value("${clients.open-library.compression:true}") boolean compression,
+                                        ConnectionProvider openLibraryConnectionProvider,
                                         WebClient.Builder webClientBuilder) {
 
-    HttpClient httpClient = HttpClient.create()
-      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2_000)
+    HttpClient httpClient = HttpClient.create(openLibraryConnectionProvider)
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+      .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+      .keepAlive(keepAlive)
+      // sends Accept-Encoding: gzip and inflates the response transparently
+      .compress(compression)
       .doOnConnected(connection ->
-        connection.addHandlerLast(new ReadTimeoutHandler(2))
-          .addHandlerLast(new WriteTimeoutHandler(2)));
+        connection.addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+          .addHandlerLast(new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+
+    if (http2) {
+      // negotiated through ALPN, plain HTTP base URLs keep using HTTP/1.1
+      httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+    }
 
     return webClientBuilder
       .baseUrl(openLibraryBaseUrl)
       .clientConnector(new ReactorClientHttpConnector(httpClient))
       .build();
   }
+
+  /**
+   * Covers are served from covers.openlibrary.org, which usually redirects to archive.org. They
+   * neither go through the rate limit nor the circuit breaker of the metadata API.
+   */
+  @Bean
+  public WebClient coverWebClient(@Value("${books.thumbnails.connect-timeout:2s}") Duration connectTimeout,
+                                  @Value("${books.thumbnails.response-timeout:5s}") Duration responseTimeout,
+                                  @Value("${books.thumbnails.max-size:2MB}") DataSize maxSize,
+                                  WebClient.Builder webClientBuilder) {
+
+    HttpClient httpClient = HttpClient.create()
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+      .responseTimeout(responseTimeout)
+      .followRedirect(true);
+
+    return webClientBuilder
+      .clientConnector(new ReactorClientHttpConnector(httpClient))
+      .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxSize.toBytes()))
+      .build();
+  }
 }
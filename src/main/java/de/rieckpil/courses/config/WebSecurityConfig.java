@@ -16,6 +16,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     http
       .authorizeRequests(authorize -> authorize
         .mvcMatchers(HttpMethod.GET, "/api/books").permitAll()
+        .mvcMatchers(HttpMethod.GET, "/api/books/search").permitAll()
+        .mvcMatchers(HttpMethod.GET, "/api/books/{isbn}/thumbnail").permitAll()
         .mvcMatchers(HttpMethod.GET, "/api/books/reviews").permitAll()
         .mvcMatchers("/api/**").authenticated()
       )
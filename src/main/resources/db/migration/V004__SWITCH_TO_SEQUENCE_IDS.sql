@@ -0,0 +1,14 @@
+ALTER TABLE books ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE books_seq INCREMENT BY 50 OWNED BY books.id;
+SELECT setval('books_seq', COALESCE(MAX(id), 0) + 1, false) FROM books;
+ALTER TABLE books ALTER COLUMN id SET DEFAULT nextval('books_seq');
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE users_seq INCREMENT BY 50 OWNED BY users.id;
+SELECT setval('users_seq', COALESCE(MAX(id), 0) + 1, false) FROM users;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+
+ALTER TABLE reviews ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE reviews_seq INCREMENT BY 50 OWNED BY reviews.id;
+SELECT setval('reviews_seq', COALESCE(MAX(id), 0) + 1, false) FROM reviews;
+ALTER TABLE reviews ALTER COLUMN id SET DEFAULT nextval('reviews_seq');
@@ -0,0 +1,8 @@
+CREATE TABLE processed_messages (
+ message_id VARCHAR(255) PRIMARY KEY,
+ isbn VARCHAR(255) NOT NULL,
+ processed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX processed_messages_isbn_idx ON processed_messages (isbn);
+CREATE INDEX processed_messages_processed_at_idx ON processed_messages (processed_at);
@@ -0,0 +1,108 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookCacheTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2022-06-01T10:00:00Z"), ZoneOffset.UTC);
+
+  @Mock
+  private BookRepository bookRepository;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setup() {
+    this.meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void shouldQueryRepositoryOnlyOnceForRepeatedLookups() {
+    BookCache cut = new BookCache(bookRepository, meterRegistry, 10, Duration.ofHours(1), CLOCK);
+    Book book = createBook("9780596004651");
+
+    when(bookRepository.findByIsbn("9780596004651")).thenReturn(book);
+
+    assertSame(book, cut.findByIsbn("9780596004651"));
+    assertSame(book, cut.findByIsbn("9780596004651"));
+
+    verify(bookRepository, times(1)).findByIsbn("9780596004651");
+    assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+  }
+
+  @Test
+  void shouldNotCacheUnknownIsbn() {
+    BookCache cut = new BookCache(bookRepository, meterRegistry, 10, Duration.ofHours(1), CLOCK);
+
+    assertNull(cut.findByIsbn("9780596004651"));
+    assertNull(cut.findByIsbn("9780596004651"));
+
+    verify(bookRepository, times(2)).findByIsbn("9780596004651");
+    assertEquals(0, cut.size());
+  }
+
+  @Test
+  void shouldReloadExpiredEntries() {
+    BookCache cut = new BookCache(bookRepository, meterRegistry, 10, Duration.ZERO, CLOCK);
+
+    cut.put(createBook("9780596004651"));
+    cut.findByIsbn("9780596004651");
+
+    verify(bookRepository).findByIsbn("9780596004651");
+    assertEquals(1, meterRegistry.get("cache.evictions").counter().count());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntryWhenFull() {
+    BookCache cut = new BookCache(bookRepository, meterRegistry, 2, Duration.ofHours(1), CLOCK);
+
+    cut.put(createBook("9780596004651"));
+    cut.put(createBook("9780321751041"));
+    cut.findByIsbn("9780596004651");
+    cut.put(createBook("9780321160768"));
+
+    assertEquals(2, cut.size());
+    assertEquals(1, meterRegistry.get("cache.evictions").counter().count());
+
+    cut.findByIsbn("9780321751041");
+    verify(bookRepository).findByIsbn("9780321751041");
+  }
+
+  @Test
+  void shouldFollowStoredAndRemovedBooks() {
+    BookCache cut = new BookCache(bookRepository, meterRegistry, 10, Duration.ofHours(1), CLOCK);
+    Book book = createBook("9780596004651");
+
+    cut.onBookStored(new BookStoredEvent(book));
+    assertSame(book, cut.findByIsbn("9780596004651"));
+
+    cut.onBookRemoved(new BookRemovedEvent(book));
+    assertEquals(0, cut.size());
+  }
+
+  private Book createBook(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle("Book " + isbn);
+    return book;
+  }
+}
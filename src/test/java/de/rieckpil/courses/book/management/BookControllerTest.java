@@ -1,31 +1,58 @@
 package de.rieckpil.courses.book.management;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BookController.class)
+@Import(CatalogResponseCache.class)
 class BookControllerTest {
 
   @MockBean
   private BookManagementService bookManagementService;
 
+  @MockBean
+  private CatalogVersion catalogVersion;
+
+  @Autowired
+  private CatalogResponseCache catalogResponseCache;
+
   @Autowired
   private MockMvc mockMvc;
 
+  @BeforeEach
+  void setup() {
+    catalogResponseCache.clear();
+  }
+
   @Test
   void shouldGetEmptyArrayWhenNoBooksExists() throws Exception {
     MvcResult mvcResult = this.mockMvc
@@ -55,7 +82,11 @@ class BookControllerTest {
     Book bookTwo = createBook(2L, "84", "Java 15", "Duke", "Good book",
       "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
 
-    when(bookManagementService.getAllBooks()).thenReturn(List.of(bookOne, bookTwo));
+    doAnswer(invocation -> {
+      Consumer<Book> consumer = invocation.getArgument(0);
+      List.of(bookOne, bookTwo).forEach(consumer);
+      return null;
+    }).when(bookManagementService).streamAllBooks(any());
 
     this.mockMvc
       .perform(get("/api/books")
@@ -71,6 +102,164 @@ class BookControllerTest {
       .andExpect(jsonPath("$[1].title", is("Java 15")));
   }
 
+  @Test
+  void shouldReturnLinkToNextPageWhenPageIsFull() throws Exception {
+
+    Book bookOne = createBook(1L, "42", "Java 14", "Mike", "Good book",
+      "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
+
+    Book bookTwo = createBook(2L, "84", "Java 15", "Duke", "Good book",
+      "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
+
+    when(bookManagementService.getBooks(2, 0L)).thenReturn(List.of(bookOne, bookTwo));
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .param("limit", "2")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().is(200))
+      .andExpect(jsonPath("$.size()", is(2)))
+      .andExpect(jsonPath("$[1].isbn", is("84")))
+      .andExpect(header().string(HttpHeaders.LINK, containsString("after=2")));
+  }
+
+  @Test
+  void shouldNotReturnLinkToNextPageWhenLastPageIsReached() throws Exception {
+
+    Book bookOne = createBook(3L, "42", "Java 14", "Mike", "Good book",
+      "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
+
+    when(bookManagementService.getBooks(2, 2L)).thenReturn(List.of(bookOne));
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .param("limit", "2")
+        .param("after", "2")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().is(200))
+      .andExpect(jsonPath("$.size()", is(1)))
+      .andExpect(header().doesNotExist(HttpHeaders.LINK));
+  }
+
+  @Test
+  void shouldReturnNotModifiedWhenCatalogVersionIsUnchanged() throws Exception {
+    when(catalogVersion.current()).thenReturn(42L);
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_NONE_MATCH, "\"books-42\""))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"books-42\""));
+
+    verifyNoInteractions(bookManagementService);
+  }
+
+  @Test
+  void shouldReturnCatalogWhenCatalogVersionHasChanged() throws Exception {
+    when(catalogVersion.current()).thenReturn(43L);
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_NONE_MATCH, "\"books-42\""))
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"books-43\""))
+      .andExpect(jsonPath("$.size()", is(0)));
+  }
+
+  @Test
+  void shouldServeCachedGzipCatalogWhenClientAcceptsGzip() throws Exception {
+    Book bookOne = createBook(1L, "42", "Java 14", "Mike", "Good book",
+      "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
+
+    doAnswer(invocation -> {
+      Consumer<Book> consumer = invocation.getArgument(0);
+      consumer.accept(bookOne);
+      return null;
+    }).when(bookManagementService).streamAllBooks(any());
+
+    MvcResult result = this.mockMvc
+      .perform(get("/api/books")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+      .andExpect(status().is(200))
+      .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+      .andExpect(header().string(HttpHeaders.ETAG, "\"books-0-gzip\""))
+      .andReturn();
+
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+      assertTrue(new String(gzip.readAllBytes(), StandardCharsets.UTF_8).contains("\"isbn\":\"42\""));
+    }
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().is(200))
+      .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+      .andExpect(jsonPath("$[0].isbn", is("42")));
+
+    verify(bookManagementService, times(1)).streamAllBooks(any());
+  }
+
+  @Test
+  void shouldOnlyWriteRequestedFieldsFromSummaryProjection() throws Exception {
+    BookSummary summary = mock(BookSummary.class);
+    when(summary.getIsbn()).thenReturn("42");
+    when(summary.getTitle()).thenReturn("Java 14");
+
+    doAnswer(invocation -> {
+      Consumer<BookSummary> consumer = invocation.getArgument(0);
+      consumer.accept(summary);
+      return null;
+    }).when(bookManagementService).streamBookSummaries(any());
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .param("fields", "isbn,title")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().is(200))
+      .andExpect(jsonPath("$.size()", is(1)))
+      .andExpect(jsonPath("$[0].isbn", is("42")))
+      .andExpect(jsonPath("$[0].title", is("Java 14")))
+      .andExpect(jsonPath("$[0].author").doesNotExist())
+      .andExpect(jsonPath("$[0].id").doesNotExist());
+
+    verify(bookManagementService, never()).streamAllBooks(any());
+  }
+
+  @Test
+  void shouldLoadFullBooksWhenRequestedFieldsAreNotPartOfSummary() throws Exception {
+    Book bookOne = createBook(1L, "42", "Java 14", "Mike", "Good book",
+      "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
+
+    doAnswer(invocation -> {
+      Consumer<Book> consumer = invocation.getArgument(0);
+      consumer.accept(bookOne);
+      return null;
+    }).when(bookManagementService).streamAllBooks(any());
+
+    this.mockMvc
+      .perform(get("/api/books")
+        .param("fields", "isbn,description")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().is(200))
+      .andExpect(jsonPath("$[0].isbn", is("42")))
+      .andExpect(jsonPath("$[0].description", is("Good book")))
+      .andExpect(jsonPath("$[0].title").doesNotExist());
+  }
+
+  @Test
+  void shouldRejectUnknownFields() throws Exception {
+    this.mockMvc
+      .perform(get("/api/books")
+        .param("fields", "isbn,secret")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+      .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(bookManagementService);
+  }
+
   private Book createBook(Long id, String isbn, String title, String author, String description, String genre, Long pages, String publisher, String thumbnailUrl) {
     Book result = new Book();
     result.setId(id);
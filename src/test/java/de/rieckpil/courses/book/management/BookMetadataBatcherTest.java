@@ -0,0 +1,114 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookMetadataBatcherTest {
+
+  @Mock
+  private BookMetadataProviderChain bookMetadataProviderChain;
+
+  private BookMetadataBatcher cut;
+
+  @BeforeEach
+  void setup() {
+    this.cut = new BookMetadataBatcher(bookMetadataProviderChain, 2, Duration.ofMillis(500));
+  }
+
+  @AfterEach
+  void tearDown() {
+    cut.shutdown();
+  }
+
+  @Test
+  void shouldResolveConcurrentLookupsWithOneRequest() {
+    when(bookMetadataProviderChain.retrieveMetadataForBooks(any()))
+      .thenReturn(Mono.just(Map.of("9780596004651", createBook("9780596004651"), "9780321751041", createBook("9780321751041"))));
+
+    Mono<Book> first = cut.fetch("9780596004651");
+    Mono<Book> second = cut.fetch("9780321751041");
+
+    List<Book> result = Flux.merge(first, second).collectList().block();
+
+    assertEquals(2, result.size());
+    verify(bookMetadataProviderChain, times(1)).retrieveMetadataForBooks(any());
+  }
+
+  @Test
+  void shouldFailLookupWhenBookIsUnknown() {
+    when(bookMetadataProviderChain.retrieveMetadataForBooks(List.of("9780596004651"))).thenReturn(Mono.just(Map.of()));
+
+    assertThrows(IllegalStateException.class, () -> cut.fetch("9780596004651").block());
+  }
+
+  @Test
+  void shouldPropagateFailureToAllLookupsOfBatch() {
+    when(bookMetadataProviderChain.retrieveMetadataForBooks(List.of("9780596004651")))
+      .thenReturn(Mono.error(new RuntimeException("Network timeout")));
+
+    RuntimeException exception = assertThrows(RuntimeException.class, () -> cut.fetch("9780596004651").block());
+    assertEquals("Network timeout", exception.getMessage());
+  }
+
+  @Test
+  void shouldKeepBatchingWhenMoreBatchesStallThanAreResolvedConcurrently() throws Exception {
+    Sinks.Empty<Void> stalledUpstream = Sinks.empty();
+    when(bookMetadataProviderChain.retrieveMetadataForBooks(any())).thenAnswer(invocation -> {
+      Collection<String> isbns = invocation.getArgument(0);
+      return stalledUpstream.asMono()
+        .then(Mono.fromSupplier(() -> isbns.stream().collect(Collectors.toMap(Function.identity(), this::createBook))));
+    });
+
+    BookMetadataBatcher batcher = new BookMetadataBatcher(bookMetadataProviderChain, 20, Duration.ofMillis(10));
+    List<CompletableFuture<Book>> lookups = new ArrayList<>();
+
+    try {
+      // one batch per lookup, the timer flushes more batches than are resolved at once
+      for (int i = 0; i < BookMetadataBatcher.CONCURRENT_BATCHES + 2; i++) {
+        lookups.add(batcher.fetch(String.format("978000000%04d", i)).toFuture());
+        Thread.sleep(50);
+      }
+
+      stalledUpstream.tryEmitEmpty();
+
+      for (int i = 0; i < lookups.size(); i++) {
+        assertEquals(String.format("978000000%04d", i), lookups.get(i).get(5, TimeUnit.SECONDS).getIsbn());
+      }
+      assertEquals("9780596004651", batcher.fetch("9780596004651").block(Duration.ofSeconds(5)).getIsbn());
+    } finally {
+      batcher.shutdown();
+    }
+  }
+
+  private Book createBook(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle("Book " + isbn);
+    return book;
+  }
+}
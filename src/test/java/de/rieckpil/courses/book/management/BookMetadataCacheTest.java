@@ -0,0 +1,143 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookMetadataCacheTest {
+
+  private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+  @TempDir
+  Path directory;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setup() {
+    this.meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void shouldReturnCopiesOfCachedBooks() throws IOException {
+    BookMetadataCache cut = open(NOW);
+
+    cut.put(createBook("9780596004651"));
+
+    Book first = cut.lookup("9780596004651").orElseThrow().getBook();
+    Book second = cut.lookup("9780596004651").orElseThrow().getBook();
+
+    assertEquals("Book 9780596004651", first.getTitle());
+    assertNotSame(first, second);
+    assertTrue(cut.lookup("9780321751041").isEmpty());
+    assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+
+    cut.close();
+  }
+
+  @Test
+  void shouldExpireUnknownIsbnsEarlierThanBooks() throws IOException {
+    BookMetadataCache cut = open(NOW);
+    cut.put(createBook("9780596004651"));
+    cut.putNotFound("9780321751041");
+
+    assertTrue(cut.lookup("9780321751041").orElseThrow().isNotFound());
+    assertNull(cut.lookup("9780321751041").orElseThrow().getBook());
+    cut.close();
+
+    BookMetadataCache later = open(NOW.plus(Duration.ofHours(2)));
+
+    assertTrue(later.lookup("9780321751041").isEmpty());
+    assertEquals("Book 9780596004651", later.lookup("9780596004651").orElseThrow().getBook().getTitle());
+    later.close();
+  }
+
+  @Test
+  void shouldSurviveRestartsAndCompactTheFile() throws IOException {
+    BookMetadataCache cut = open(NOW);
+    cut.putNotFound("9780596004651");
+    cut.put(createBook("9780596004651"));
+    cut.close();
+
+    Files.writeString(directory.resolve("metadata-cache.jsonl"), "{\"isbn\":\"97803", StandardCharsets.UTF_8,
+      StandardOpenOption.APPEND);
+
+    BookMetadataCache reopened = open(NOW);
+
+    assertEquals(1, reopened.size());
+    assertEquals(1, Files.readAllLines(directory.resolve("metadata-cache.jsonl")).size());
+    assertEquals("Book 9780596004651", reopened.lookup("9780596004651").orElseThrow().getBook().getTitle());
+    reopened.close();
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedLookups() throws IOException {
+    BookMetadataCache cut = new BookMetadataCache(new ObjectMapper(), meterRegistry, directory, 2,
+      Duration.ofDays(7), Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+    cut.open();
+
+    cut.put(createBook("9780596004651"));
+    cut.put(createBook("9780321751041"));
+    cut.put(createBook("9780321160768"));
+    cut.close();
+
+    assertEquals(2, cut.size());
+    assertTrue(cut.lookup("9780596004651").isEmpty());
+    assertTrue(Files.readAllLines(directory.resolve("metadata-cache.jsonl")).size() <= 3);
+  }
+
+  @Test
+  void shouldDropExpiredLookupsWhenCompacting() throws IOException {
+    AtomicLong now = new AtomicLong(NOW.toEpochMilli());
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).then(invocation -> now.get());
+
+    BookMetadataCache cut = new BookMetadataCache(new ObjectMapper(), meterRegistry, directory, 100,
+      Duration.ofDays(7), Duration.ofHours(1), clock);
+    cut.open();
+    cut.put(createBook("9780596004651"));
+    cut.putNotFound("9780321751041");
+
+    now.addAndGet(Duration.ofHours(2).toMillis());
+    cut.compact();
+    cut.close();
+
+    assertEquals(1, cut.size());
+    assertEquals(1, Files.readAllLines(directory.resolve("metadata-cache.jsonl")).size());
+  }
+
+  private BookMetadataCache open(Instant now) throws IOException {
+    BookMetadataCache cache = new BookMetadataCache(new ObjectMapper(), meterRegistry, directory, 100,
+      Duration.ofDays(7), Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+    cache.open();
+    return cache;
+  }
+
+  private Book createBook(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle("Book " + isbn);
+    return book;
+  }
+}
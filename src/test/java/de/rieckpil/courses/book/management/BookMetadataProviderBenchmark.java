@@ -0,0 +1,130 @@
+package de.rieckpil.courses.book.management;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures throughput and latency of every {@link BookMetadataProvider} against a local WireMock
+ * stand-in for Open Library that answers after {@value #UPSTREAM_LATENCY_MILLIS} ms. Run with
+ * {@code ./mvnw verify -Pbenchmark}.
+ */
+class BookMetadataProviderBenchmark {
+
+  private static final String ISBN = "9780596004651";
+  private static final int UPSTREAM_LATENCY_MILLIS = 20;
+  private static final int WARMUP_REQUESTS = 200;
+  private static final int REQUESTS = 2_000;
+  private static final int[] CONCURRENCY_LEVELS = {1, 8, 32, 128};
+
+  private WireMockServer wireMockServer;
+  private ConnectionProvider connectionProvider;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.wireMockServer = new WireMockServer(new WireMockConfiguration().dynamicPort().containerThreads(256));
+    this.wireMockServer.start();
+
+    try (InputStream payload = getClass().getClassLoader().getResourceAsStream("stubs/openlibrary/success-" + ISBN + ".json")) {
+      wireMockServer.stubFor(get(urlPathEqualTo("/api/books"))
+        .willReturn(aResponse()
+          .withHeader("Content-Type", "application/json; charset=utf-8")
+          .withBody(payload.readAllBytes())
+          .withFixedDelay(UPSTREAM_LATENCY_MILLIS)));
+    }
+
+    this.connectionProvider = ConnectionProvider.builder("benchmark").maxConnections(256).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    connectionProvider.dispose();
+    wireMockServer.stop();
+  }
+
+  @Test
+  void compareProviders() {
+    for (BookMetadataProvider provider : createProviders()) {
+      run(provider, 8, WARMUP_REQUESTS);
+
+      for (int concurrency : CONCURRENCY_LEVELS) {
+        long startedAt = System.nanoTime();
+        long[] latencies = run(provider, concurrency, REQUESTS);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-14s concurrency %4d: %8.1f requests/s, p50 %6.1f ms, p99 %6.1f ms%n",
+          provider.getName(), concurrency, REQUESTS / seconds,
+          percentile(latencies, 0.50), percentile(latencies, 0.99));
+      }
+    }
+  }
+
+  private long[] run(BookMetadataProvider provider, int concurrency, int requests) {
+    List<Long> latencies = Flux.range(0, requests)
+      .flatMap(ignored -> {
+        long start = System.nanoTime();
+        return provider.retrieveMetadataForBooks(List.of(ISBN))
+          .map(books -> {
+            assertEquals(1, books.size());
+            return System.nanoTime() - start;
+          });
+      }, concurrency)
+      .collectList()
+      .block();
+
+    return latencies.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private List<BookMetadataProvider> createProviders() {
+    String baseUrl = wireMockServer.baseUrl();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // every request has to reach the stand-in, neither cache nor rate limit may interfere
+    BookMetadataCache noCache = mock(BookMetadataCache.class, withSettings().stubOnly());
+    OpenLibraryRateLimiter noRateLimit = new OpenLibraryRateLimiter(1_000_000, 1_000_000);
+
+    OpenLibraryResilience resilience = new OpenLibraryResilience(
+      new OpenLibraryCircuitBreaker(event -> {
+      }, meterRegistry, Integer.MAX_VALUE, Duration.ofSeconds(1)),
+      meterRegistry, 1, Duration.ofMillis(100), Duration.ofSeconds(1), false, Duration.ofMillis(100));
+
+    WebClient webClient = WebClient.builder()
+      .baseUrl(baseUrl)
+      .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+      .build();
+
+    return List.of(
+      new OpenLibraryApiClient(webClient, noCache, resilience, noRateLimit),
+      new OpenLibraryRestTemplateApiClient(new RestTemplateBuilder(), noCache, resilience, noRateLimit, baseUrl,
+        Duration.ofSeconds(2), Duration.ofSeconds(2)));
+  }
+
+  private static double percentile(long[] sortedLatencies, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
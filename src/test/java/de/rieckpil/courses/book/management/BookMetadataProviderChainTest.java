@@ -0,0 +1,93 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookMetadataProviderChainTest {
+
+  private static final List<String> ISBNS = List.of("9780596004651");
+
+  @Mock
+  private BookMetadataProvider webClient;
+
+  @Mock
+  private BookMetadataProvider restTemplate;
+
+  @Test
+  void shouldAskProvidersInConfiguredOrder() {
+    when(webClient.getName()).thenReturn("web-client");
+    when(restTemplate.getName()).thenReturn("rest-template");
+    when(restTemplate.retrieveMetadataForBooks(ISBNS)).thenReturn(Mono.just(Map.of()));
+
+    BookMetadataProviderChain cut = new BookMetadataProviderChain(List.of(webClient, restTemplate), List.of("rest-template"));
+
+    assertEquals(Map.of(), cut.retrieveMetadataForBooks(ISBNS).block());
+    verify(webClient, never()).retrieveMetadataForBooks(ISBNS);
+  }
+
+  @Test
+  void shouldFallBackToNextProviderOnTransientFailure() {
+    Book book = new Book();
+    when(webClient.getName()).thenReturn("web-client");
+    when(restTemplate.getName()).thenReturn("rest-template");
+    when(webClient.retrieveMetadataForBooks(ISBNS)).thenReturn(Mono.error(
+      WebClientResponseException.create(503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null)));
+    when(restTemplate.retrieveMetadataForBooks(ISBNS)).thenReturn(Mono.just(Map.of("9780596004651", book)));
+
+    BookMetadataProviderChain cut = new BookMetadataProviderChain(List.of(webClient, restTemplate),
+      List.of("web-client", "rest-template"));
+
+    assertSame(book, cut.retrieveMetadataForBooks(ISBNS).block().get("9780596004651"));
+  }
+
+  @Test
+  void shouldNotFallBackWhileCircuitBreakerIsOpen() {
+    when(webClient.getName()).thenReturn("web-client");
+    when(restTemplate.getName()).thenReturn("rest-template");
+    when(webClient.retrieveMetadataForBooks(ISBNS)).thenReturn(Mono.error(new OpenLibraryUnavailableException("open")));
+
+    BookMetadataProviderChain cut = new BookMetadataProviderChain(List.of(webClient, restTemplate),
+      List.of("web-client", "rest-template"));
+
+    assertThrows(OpenLibraryUnavailableException.class, () -> cut.retrieveMetadataForBooks(ISBNS).block());
+    verify(restTemplate, never()).retrieveMetadataForBooks(ISBNS);
+  }
+
+  @Test
+  void shouldNotFallBackWhenOpenLibraryRejectsRequest() {
+    when(webClient.getName()).thenReturn("web-client");
+    when(restTemplate.getName()).thenReturn("rest-template");
+    when(webClient.retrieveMetadataForBooks(ISBNS)).thenReturn(Mono.error(
+      WebClientResponseException.create(400, "Bad Request", HttpHeaders.EMPTY, new byte[0], null)));
+
+    BookMetadataProviderChain cut = new BookMetadataProviderChain(List.of(webClient, restTemplate),
+      List.of("web-client", "rest-template"));
+
+    assertThrows(WebClientResponseException.BadRequest.class, () -> cut.retrieveMetadataForBooks(ISBNS).block());
+    verify(restTemplate, never()).retrieveMetadataForBooks(ISBNS);
+  }
+
+  @Test
+  void shouldRejectUnknownProvider() {
+    when(webClient.getName()).thenReturn("web-client");
+
+    assertThrows(IllegalStateException.class,
+      () -> new BookMetadataProviderChain(List.of(webClient), List.of("web-client", "feign")));
+  }
+}
@@ -0,0 +1,90 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+  @Mock
+  private BookManagementService bookManagementService;
+
+  private BookSearchIndex cut;
+
+  @BeforeEach
+  void setup() {
+    this.cut = new BookSearchIndex(bookManagementService);
+
+    cut.index(createBook("9780596004651", "Head First Java", "Kathy Sierra",
+      "Java (Computer program language)", "A brain-friendly guide to learning Java"));
+    cut.index(createBook("9780321751041", "The Art of Computer Programming", "Donald Knuth",
+      "Computer algorithms", "Fundamental algorithms, including some notes on Java"));
+    cut.index(createBook("9780321160768", "Test-Driven Development", "Kent Beck",
+      "Software Engineering", "By example"));
+  }
+
+  @Test
+  void shouldRankTitleMatchesAboveDescriptionMatches() {
+    List<BookSearchResult> result = cut.search("java", 10);
+
+    assertEquals(2, result.size());
+    assertEquals("9780596004651", result.get(0).getIsbn());
+    assertEquals("9780321751041", result.get(1).getIsbn());
+  }
+
+  @Test
+  void shouldMatchPrefixesCaseAndAccentInsensitive() {
+    List<BookSearchResult> result = cut.search("Knü", 10);
+
+    assertEquals(1, result.size());
+    assertEquals("Donald Knuth", result.get(0).getAuthor());
+  }
+
+  @Test
+  void shouldRequireAllQueryTermsToMatch() {
+    assertEquals(1, cut.search("computer algo", 10).size());
+    assertTrue(cut.search("computer beck", 10).isEmpty());
+  }
+
+  @Test
+  void shouldReplaceDocumentWhenBookIsIndexedAgain() {
+    cut.index(createBook("9780321160768", "Refactoring", "Martin Fowler", "Software Engineering", null));
+
+    assertTrue(cut.search("driven", 10).isEmpty());
+    assertEquals("9780321160768", cut.search("refactoring", 10).get(0).getIsbn());
+    assertEquals(3, cut.size());
+  }
+
+  @Test
+  void shouldForgetRemovedBooks() {
+    cut.remove("9780596004651");
+
+    assertEquals(1, cut.search("java", 10).size());
+    assertTrue(cut.search("sierra", 10).isEmpty());
+  }
+
+  @Test
+  void shouldLimitNumberOfResults() {
+    assertEquals(1, cut.search("java", 1).size());
+    assertTrue(cut.search(" ", 10).isEmpty());
+  }
+
+  private Book createBook(String isbn, String title, String author, String genre, String description) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle(title);
+    book.setAuthor(author);
+    book.setGenre(genre);
+    book.setDescription(description);
+    book.setPublisher("n.A.");
+    return book;
+  }
+}
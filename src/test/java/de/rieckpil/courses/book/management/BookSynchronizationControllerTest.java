@@ -0,0 +1,106 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BookSynchronizationController.class)
+class BookSynchronizationControllerTest {
+
+  @MockBean
+  private BookSynchronizationPublisher bookSynchronizationPublisher;
+
+  @MockBean
+  private BookSynchronizationDeadLetterQueue bookSynchronizationDeadLetterQueue;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Test
+  void shouldRejectUnauthenticatedRequests() throws Exception {
+    this.mockMvc
+      .perform(post("/api/books/sync")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"isbns\": [\"9780596004651\"]}"))
+      .andExpect(status().isUnauthorized());
+
+    verifyNoInteractions(bookSynchronizationPublisher);
+  }
+
+  @Test
+  @WithMockUser(roles = "user")
+  void shouldRejectUsersWithoutModeratorRole() throws Exception {
+    this.mockMvc
+      .perform(post("/api/books/sync")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"isbns\": [\"9780596004651\"]}"))
+      .andExpect(status().isForbidden());
+
+    verifyNoInteractions(bookSynchronizationPublisher);
+  }
+
+  @Test
+  @WithMockUser(roles = "moderator")
+  void shouldEnqueueValidIsbnsAndReportInvalidOnes() throws Exception {
+    when(bookSynchronizationPublisher.enqueue(List.of("9780596004651", "9780321751041")))
+      .thenReturn(CompletableFuture.completedFuture(new BookSynchronizationPublisher.EnqueueResult(2, List.of())));
+
+    this.mockMvc
+      .perform(post("/api/books/sync")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"isbns\": [\"9780596004651\", \"42\", \"9780321751041\"]}"))
+      .andExpect(status().isAccepted())
+      .andExpect(jsonPath("$.enqueued").value(2))
+      .andExpect(jsonPath("$.failed", empty()))
+      .andExpect(jsonPath("$.rejected", contains("42")));
+
+    verify(bookSynchronizationPublisher).enqueue(List.of("9780596004651", "9780321751041"));
+  }
+
+  @Test
+  @WithMockUser(roles = "moderator")
+  void shouldRejectEmptyRequest() throws Exception {
+    this.mockMvc
+      .perform(post("/api/books/sync")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"isbns\": []}"))
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(roles = "moderator")
+  void shouldReplayDeadLetters() throws Exception {
+    when(bookSynchronizationDeadLetterQueue.replay(25)).thenReturn(3);
+
+    this.mockMvc
+      .perform(post("/api/books/sync/dead-letters/replay").param("maxMessages", "25"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.replayed").value(3));
+  }
+
+  @Test
+  @WithMockUser(roles = "user")
+  void shouldOnlyAllowModeratorsToReplayDeadLetters() throws Exception {
+    this.mockMvc
+      .perform(post("/api/books/sync/dead-letters/replay"))
+      .andExpect(status().isForbidden());
+
+    verifyNoInteractions(bookSynchronizationDeadLetterQueue);
+  }
+}
@@ -0,0 +1,87 @@
+package de.rieckpil.courses.book.management;
+
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSynchronizationDeadLetterQueueTest {
+
+  @Mock
+  private AmazonSQSAsync amazonSQSAsync;
+
+  private BookSynchronizationDeadLetterQueue cut;
+
+  @BeforeEach
+  void setup() {
+    this.cut = new BookSynchronizationDeadLetterQueue(amazonSQSAsync, "book-synchronization", "book-synchronization-dead-letters");
+  }
+
+  @Test
+  void shouldOnlyDeleteMessagesTheQueueAccepted() {
+    when(amazonSQSAsync.getQueueUrl("book-synchronization-dead-letters"))
+      .thenReturn(new GetQueueUrlResult().withQueueUrl("http://sqs/dead-letters"));
+    when(amazonSQSAsync.getQueueUrl("book-synchronization")).thenReturn(new GetQueueUrlResult().withQueueUrl("http://sqs/queue"));
+    when(amazonSQSAsync.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(
+      new ReceiveMessageResult().withMessages(
+        new Message().withMessageId("1").withReceiptHandle("receipt-1").withBody("{\"isbn\":\"9780596004651\"}"),
+        new Message().withMessageId("2").withReceiptHandle("receipt-2").withBody("{\"isbn\":\"9780321751041\"}")),
+      new ReceiveMessageResult());
+    when(amazonSQSAsync.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(
+      new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError")));
+
+    assertEquals(1, cut.replay(100));
+
+    ArgumentCaptor<SendMessageBatchRequest> sent = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+    verify(amazonSQSAsync).sendMessageBatch(sent.capture());
+    assertEquals("http://sqs/queue", sent.getValue().getQueueUrl());
+    assertEquals("{\"isbn\":\"9780596004651\"}", sent.getValue().getEntries().get(0).getMessageBody());
+
+    ArgumentCaptor<DeleteMessageBatchRequest> deleted = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+    verify(amazonSQSAsync).deleteMessageBatch(deleted.capture());
+    assertEquals("http://sqs/dead-letters", deleted.getValue().getQueueUrl());
+    assertEquals(List.of("receipt-1"), deleted.getValue().getEntries().stream()
+      .map(DeleteMessageBatchRequestEntry::getReceiptHandle)
+      .collect(Collectors.toList()));
+  }
+
+  @Test
+  void shouldNotReceiveMoreThanRequested() {
+    when(amazonSQSAsync.getQueueUrl("book-synchronization-dead-letters"))
+      .thenReturn(new GetQueueUrlResult().withQueueUrl("http://sqs/dead-letters"));
+    when(amazonSQSAsync.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(new ReceiveMessageResult());
+
+    assertEquals(0, cut.replay(3));
+
+    ArgumentCaptor<ReceiveMessageRequest> received = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+    verify(amazonSQSAsync).receiveMessage(received.capture());
+    assertEquals(3, received.getValue().getMaxNumberOfMessages());
+  }
+
+  @Test
+  void shouldDescribeFailureWithinAttributeLimit() {
+    assertEquals("java.lang.NullPointerException", BookSynchronizationDeadLetterQueue.describe(new NullPointerException()));
+    assertEquals(1024, BookSynchronizationDeadLetterQueue.describe(new IllegalStateException("x".repeat(5_000))).length());
+  }
+}
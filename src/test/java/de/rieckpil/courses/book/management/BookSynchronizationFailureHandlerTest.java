@@ -0,0 +1,175 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.aws.messaging.listener.Acknowledgment;
+import org.springframework.cloud.aws.messaging.listener.Visibility;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class BookSynchronizationFailureHandlerTest {
+
+  private static final String MESSAGE_ID = "42";
+  private static final BookSynchronization BOOK_SYNCHRONIZATION = new BookSynchronization("9780596004651");
+
+  @Mock
+  private BookSynchronizationDeadLetterQueue deadLetterQueue;
+
+  @Mock
+  private Acknowledgment acknowledgment;
+
+  @Mock
+  private Visibility visibility;
+
+  private BookSynchronizationFailureHandler cut;
+
+  @BeforeEach
+  void setup() {
+    this.cut = new BookSynchronizationFailureHandler(deadLetterQueue, new ObjectMapper(), 5,
+      Duration.ofSeconds(30), Duration.ofMinutes(5));
+  }
+
+  @Test
+  void shouldDelayRetryableFailureExponentially() {
+    IOException failure = new IOException("Connection reset");
+
+    cut.handle(BOOK_SYNCHRONIZATION, MESSAGE_ID, 3, failure, acknowledgment, visibility);
+
+    verify(visibility).extend(120);
+    verifyNoInteractions(deadLetterQueue, acknowledgment);
+  }
+
+  @Test
+  void shouldMovePermanentFailureToDeadLetterQueue() {
+    NullPointerException failure = new NullPointerException("publishers");
+    when(deadLetterQueue.send("{\"isbn\":\"9780596004651\"}", MESSAGE_ID, 1, failure))
+      .thenReturn(CompletableFuture.completedFuture(null));
+
+    cut.handle(BOOK_SYNCHRONIZATION, MESSAGE_ID, 1, failure, acknowledgment, visibility);
+
+    verify(acknowledgment).acknowledge();
+    verify(visibility, never()).extend(anyInt());
+  }
+
+  @Test
+  void shouldMoveRetryableFailureToDeadLetterQueueOnceAttemptsAreExhausted() {
+    OpenLibraryUnavailableException failure = new OpenLibraryUnavailableException("Open Library circuit breaker is open");
+    when(deadLetterQueue.send("{\"isbn\":\"9780596004651\"}", MESSAGE_ID, 5, failure))
+      .thenReturn(CompletableFuture.completedFuture(null));
+
+    cut.handle(BOOK_SYNCHRONIZATION, MESSAGE_ID, 5, failure, acknowledgment, visibility);
+
+    verify(acknowledgment).acknowledge();
+    verify(visibility, never()).extend(anyInt());
+  }
+
+  @Test
+  void shouldKeepMessageWhenDeadLetterQueueIsUnavailable() {
+    when(deadLetterQueue.send(any(), any(), anyInt(), any()))
+      .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Queue does not exist")));
+
+    cut.deadLetter("not json", MESSAGE_ID, 1, new IllegalArgumentException(), acknowledgment);
+
+    verify(acknowledgment, never()).acknowledge();
+  }
+
+  @Test
+  void shouldCapBackoff() {
+    assertEquals(Duration.ofSeconds(30), cut.backoff(1));
+    assertEquals(Duration.ofSeconds(60), cut.backoff(2));
+    assertEquals(Duration.ofMinutes(5), cut.backoff(5));
+    assertEquals(Duration.ofMinutes(5), cut.backoff(1_000));
+  }
+
+  @Test
+  void shouldRetryWhenEveryProviderFindsOpenLibraryUnavailable() throws IOException {
+    try (MockWebServer mockWebServer = new MockWebServer()) {
+      mockWebServer.setDispatcher(new Dispatcher() {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+          return new MockResponse().setResponseCode(503);
+        }
+      });
+      mockWebServer.start();
+
+      SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+      OpenLibraryResilience resilience = new OpenLibraryResilience(new OpenLibraryCircuitBreaker(event -> {
+      }, meterRegistry, 100, Duration.ofMinutes(1)), meterRegistry, 1, Duration.ofMillis(10), Duration.ofMillis(10),
+        false, Duration.ofMillis(100));
+      BookMetadataCache noCache = mock(BookMetadataCache.class, withSettings().stubOnly());
+      OpenLibraryRateLimiter noRateLimit = new OpenLibraryRateLimiter(1_000, 100);
+      String baseUrl = mockWebServer.url("/").toString();
+
+      BookMetadataProviderChain chain = new BookMetadataProviderChain(List.of(
+        new OpenLibraryApiClient(WebClient.create(baseUrl), noCache, resilience, noRateLimit),
+        new OpenLibraryRestTemplateApiClient(new RestTemplateBuilder(), noCache, resilience, noRateLimit, baseUrl,
+          Duration.ofSeconds(2), Duration.ofSeconds(2))),
+        List.of("web-client", "rest-template"));
+
+      Throwable failure = assertThrows(RuntimeException.class,
+        () -> chain.retrieveMetadataForBooks(List.of("9780596004651")).block());
+
+      cut.handle(BOOK_SYNCHRONIZATION, MESSAGE_ID, 1, failure, acknowledgment, visibility);
+
+      assertEquals(2, mockWebServer.getRequestCount());
+      verify(visibility).extend(30);
+      verifyNoInteractions(deadLetterQueue, acknowledgment);
+    }
+  }
+
+  @Test
+  void shouldClassifyFailures() {
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(new QueryTimeoutException("Timeout")));
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(
+      WebClientResponseException.create(503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null)));
+    assertFalse(BookSynchronizationFailureHandler.isRetryable(
+      WebClientResponseException.create(HttpStatus.NOT_FOUND.value(), "Not Found", HttpHeaders.EMPTY, new byte[0], null)));
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(
+      HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, new byte[0], null)));
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(
+      HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null)));
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(new ResourceAccessException("I/O error", new IOException())));
+    assertTrue(BookSynchronizationFailureHandler.isRetryable(
+      new WebClientResponseException("Read timed out", HttpStatus.OK.value(), "OK", HttpHeaders.EMPTY, new byte[0], null)
+        .initCause(ReadTimeoutException.INSTANCE)));
+    assertFalse(BookSynchronizationFailureHandler.isRetryable(
+      HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", HttpHeaders.EMPTY, new byte[0], null)));
+    assertFalse(BookSynchronizationFailureHandler.isRetryable(new NullPointerException()));
+  }
+}
@@ -93,7 +93,25 @@ class BookSynchronizationListenerSliceTest {
   private BookRepository bookRepository;
 
   @MockBean
-  private OpenLibraryApiClient openLibraryApiClient;
+  private BookCache bookCache;
+
+  @MockBean
+  private IsbnIndex isbnIndex;
+
+  @MockBean
+  private IsbnBloomFilter isbnBloomFilter;
+
+  @MockBean
+  private ThumbnailStore thumbnailStore;
+
+  @MockBean
+  private BookMetadataBatcher bookMetadataBatcher;
+
+  @MockBean
+  private ProcessedMessageStore processedMessageStore;
+
+  @MockBean
+  private BookSynchronizationFailureHandler failureHandler;
 
   @Test
   void shouldStartSQS() {
@@ -104,14 +122,16 @@ class BookSynchronizationListenerSliceTest {
 
   @Test
   void shouldConsumeMessageWhenPayloadIsCorrect() {
+    when(isbnBloomFilter.mightContain(ISBN)).thenReturn(true);
+
     queueMessagingTemplate.convertAndSend(QUEUE_NAME, new BookSynchronization(ISBN));
 
-    when(bookRepository.findByIsbn(ISBN)).thenReturn(new Book());
+    when(bookCache.findByIsbn(ISBN)).thenReturn(new Book());
 
     given()
       .await()
       .atMost(5, TimeUnit.SECONDS)
-      .untilAsserted(() -> verify(bookRepository).findByIsbn(ISBN));
+      .untilAsserted(() -> verify(bookCache).findByIsbn(ISBN));
   }
 
 }
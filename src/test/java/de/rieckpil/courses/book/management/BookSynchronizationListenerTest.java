@@ -1,10 +1,20 @@
 package de.rieckpil.courses.book.management;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.aws.messaging.listener.Acknowledgment;
+import org.springframework.cloud.aws.messaging.listener.Visibility;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
@@ -13,71 +23,201 @@ import static org.mockito.Mockito.*;
 class BookSynchronizationListenerTest {
 
   private final static String VALID_ISBN = "1234567891234";
+  private final static String MESSAGE_ID = "42";
   @Mock
   private BookRepository bookRepository;
 
   @Mock
-  private OpenLibraryApiClient openLibraryApiClient;
+  private BookCache bookCache;
+
+  @Mock
+  private IsbnIndex isbnIndex;
+
+  @Mock
+  private IsbnBloomFilter isbnBloomFilter;
+
+  @Mock
+  private ThumbnailStore thumbnailStore;
+
+  @Mock
+  private BookMetadataBatcher bookMetadataBatcher;
+
+  @Mock
+  private ProcessedMessageStore processedMessageStore;
+
+  @Mock
+  private BookSynchronizationFailureHandler failureHandler;
+
+  @Mock
+  private Acknowledgment acknowledgment;
+
+  @Mock
+  private Visibility visibility;
 
-  @InjectMocks
   private BookSynchronizationListener cut;
 
   @Captor
   private ArgumentCaptor<Book> bookArgumentCaptor;
 
+  @BeforeEach
+  void setup() {
+    this.cut = new BookSynchronizationListener(bookRepository, bookCache, isbnIndex, isbnBloomFilter,
+      thumbnailStore, bookMetadataBatcher, processedMessageStore, failureHandler, 2);
+  }
+
   @Test
   void shouldRejectBookWhenIsbnIsMalformed() {
     BookSynchronization bookSynchronization = new BookSynchronization("42");
 
-    cut.consumeBookUpdates(bookSynchronization);
+    cut.synchronize(bookSynchronization).block();
 
-    verifyNoInteractions(openLibraryApiClient, bookRepository);
+    verifyNoInteractions(bookMetadataBatcher, bookRepository, bookCache);
   }
 
   @Test
   void shouldNotOverrideWhenBookAlreadyExists() {
     BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
-    when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(new Book());
+    when(isbnBloomFilter.mightContain(VALID_ISBN)).thenReturn(true);
+    when(bookCache.findByIsbn(VALID_ISBN)).thenReturn(new Book());
 
-    cut.consumeBookUpdates(bookSynchronization);
+    cut.synchronize(bookSynchronization).block();
 
-    verifyNoInteractions(openLibraryApiClient);
+    verifyNoInteractions(bookMetadataBatcher);
     verify(bookRepository, times(0)).save(ArgumentMatchers.any());
   }
 
   @Test
   void shouldThrowExceptionWhenProcessingFails() {
     BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
-    when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(null);
-    when(openLibraryApiClient.fetchMetadataForBook(VALID_ISBN)).thenThrow(new RuntimeException("Network timeout"));
+    when(isbnBloomFilter.mightContain(VALID_ISBN)).thenReturn(true);
+    when(bookCache.findByIsbn(VALID_ISBN)).thenReturn(null);
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.error(new RuntimeException("Network timeout")));
 
-    assertThrows(RuntimeException.class, () -> cut.consumeBookUpdates(bookSynchronization));
+    assertThrows(RuntimeException.class, () -> cut.synchronize(bookSynchronization).block());
   }
 
   @Test
   void shouldStoreBookWhenNewAndCorrectIsbn() {
 
     BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
-    when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(null);
+    when(isbnBloomFilter.mightContain(VALID_ISBN)).thenReturn(true);
+    when(bookCache.findByIsbn(VALID_ISBN)).thenReturn(null);
 
     Book requestedBook = new Book();
     requestedBook.setTitle("Java book");
     requestedBook.setIsbn(VALID_ISBN);
 
-    when(openLibraryApiClient.fetchMetadataForBook(VALID_ISBN)).thenReturn(requestedBook);
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.just(requestedBook));
     when(bookRepository.save(ArgumentMatchers.any())).then(invocation -> {
       Book methodArgument = invocation.getArgument(0);
       methodArgument.setId(1L);
       return methodArgument;
     });
 
-    cut.consumeBookUpdates(bookSynchronization);
+    cut.synchronize(bookSynchronization).block();
 
     verify(bookRepository).save(bookArgumentCaptor.capture());
 
     Book methodArgument = bookArgumentCaptor.getValue();
     assertEquals("Java book", methodArgument.getTitle());
     assertEquals(VALID_ISBN, methodArgument.getIsbn());
+
+    verify(thumbnailStore).prefetch(methodArgument);
+  }
+
+  @Test
+  void shouldOnlyAskDatabaseWhenIsbnWasNeverStoredByThisInstance() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(isbnBloomFilter.mightContain(VALID_ISBN)).thenReturn(false);
+    when(bookRepository.existsByIsbn(VALID_ISBN)).thenReturn(false);
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.just(new Book()));
+    when(bookRepository.save(ArgumentMatchers.any())).then(invocation -> invocation.getArgument(0));
+
+    cut.synchronize(bookSynchronization).block();
+
+    verifyNoInteractions(isbnIndex, bookCache);
+    verify(bookRepository).save(ArgumentMatchers.any());
+  }
+
+  @Test
+  void shouldRejectBookStoredOutsideOfThisInstance() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(isbnBloomFilter.mightContain(VALID_ISBN)).thenReturn(false);
+    when(bookRepository.existsByIsbn(VALID_ISBN)).thenReturn(true);
+
+    cut.synchronize(bookSynchronization).block();
+
+    verify(isbnBloomFilter).put(VALID_ISBN);
+    verify(bookRepository, never()).save(ArgumentMatchers.any());
+    verifyNoInteractions(bookMetadataBatcher);
+  }
+
+  @Test
+  void shouldRejectBookWhenStoredConcurrently() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.just(new Book()));
+    when(bookRepository.save(ArgumentMatchers.any())).thenThrow(new DataIntegrityViolationException("duplicate isbn"));
+
+    assertDoesNotThrow(() -> cut.synchronize(bookSynchronization).block());
+  }
+
+  @Test
+  void shouldShareOneFetchAndSaveForConcurrentMessagesOfSameIsbn() {
+    Sinks.One<Book> metadata = Sinks.one();
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(metadata.asMono());
+    when(bookRepository.save(ArgumentMatchers.any())).then(invocation -> invocation.getArgument(0));
+
+    Mono<Void> first = cut.synchronize(new BookSynchronization(VALID_ISBN));
+    Mono<Void> second = cut.synchronize(new BookSynchronization(VALID_ISBN));
+
+    CompletableFuture<Void> firstResult = first.toFuture();
+    CompletableFuture<Void> secondResult = second.toFuture();
+
+    metadata.tryEmitValue(new Book());
+
+    assertDoesNotThrow(() -> CompletableFuture.allOf(firstResult, secondResult).get(1, TimeUnit.SECONDS));
+    verify(bookMetadataBatcher, times(1)).fetch(VALID_ISBN);
+    verify(bookRepository, times(1)).save(ArgumentMatchers.any());
+  }
+
+  @Test
+  void shouldAcknowledgeMessageOnceBookIsStored() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.just(new Book()));
+    when(bookRepository.save(ArgumentMatchers.any())).then(invocation -> invocation.getArgument(0));
+
+    cut.consumeBookUpdates(bookSynchronization, MESSAGE_ID, 1, acknowledgment, visibility);
+
+    verify(acknowledgment, timeout(1_000)).acknowledge();
+    verify(processedMessageStore, timeout(1_000)).markProcessed(MESSAGE_ID, VALID_ISBN);
+  }
+
+  @Test
+  void shouldAcknowledgeAlreadyProcessedMessageWithoutSynchronizing() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(processedMessageStore.isProcessed(MESSAGE_ID, VALID_ISBN)).thenReturn(true);
+
+    cut.consumeBookUpdates(bookSynchronization, MESSAGE_ID, 1, acknowledgment, visibility);
+
+    verify(acknowledgment).acknowledge();
+    verify(processedMessageStore, never()).markProcessed(MESSAGE_ID, VALID_ISBN);
+    verifyNoInteractions(bookMetadataBatcher, bookRepository, bookCache, isbnBloomFilter);
+  }
+
+  @Test
+  void shouldNotAcknowledgeMessageWhenProcessingFails() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    RuntimeException failure = new RuntimeException("Network timeout");
+    when(bookMetadataBatcher.fetch(VALID_ISBN)).thenReturn(Mono.error(failure));
+
+    cut.consumeBookUpdates(bookSynchronization, MESSAGE_ID, 1, acknowledgment, visibility);
+    cut.consumeBookUpdates(bookSynchronization, MESSAGE_ID, 1, acknowledgment, visibility);
+    // a leaked permit would block here, only two synchronizations may be in flight
+    cut.consumeBookUpdates(bookSynchronization, MESSAGE_ID, 1, acknowledgment, visibility);
+
+    verify(acknowledgment, after(200).never()).acknowledge();
+    verify(processedMessageStore, never()).markProcessed(MESSAGE_ID, VALID_ISBN);
+    verify(failureHandler, times(3)).handle(bookSynchronization, MESSAGE_ID, 1, failure, acknowledgment, visibility);
   }
 
 }
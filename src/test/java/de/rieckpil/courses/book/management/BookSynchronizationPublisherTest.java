@@ -0,0 +1,80 @@
+package de.rieckpil.courses.book.management;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSynchronizationPublisherTest {
+
+  @Mock
+  private AmazonSQSAsync amazonSQSAsync;
+
+  private BookSynchronizationPublisher cut;
+
+  @BeforeEach
+  void setup() {
+    this.cut = new BookSynchronizationPublisher(amazonSQSAsync, new ObjectMapper(), "book-synchronization", 2);
+    when(amazonSQSAsync.getQueueUrl("book-synchronization")).thenReturn(new GetQueueUrlResult().withQueueUrl("http://sqs/queue"));
+  }
+
+  @Test
+  void shouldSendTenMessagesPerBatch() {
+    answerWith(new SendMessageBatchResult());
+    List<String> isbns = LongStream.range(0, 25)
+      .mapToObj(i -> String.valueOf(9780000000000L + i))
+      .collect(Collectors.toList());
+
+    BookSynchronizationPublisher.EnqueueResult result = cut.enqueue(isbns).join();
+
+    assertEquals(25, result.getEnqueued());
+
+    ArgumentCaptor<SendMessageBatchRequest> requests = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+    verify(amazonSQSAsync, times(3)).sendMessageBatchAsync(requests.capture(), any(AsyncHandler.class));
+    assertEquals(10, requests.getAllValues().get(0).getEntries().size());
+    assertEquals(5, requests.getAllValues().get(2).getEntries().size());
+    assertEquals("{\"isbn\":\"9780000000000\"}", requests.getAllValues().get(0).getEntries().get(0).getMessageBody());
+    assertEquals("application/json",
+      requests.getAllValues().get(0).getEntries().get(0).getMessageAttributes().get("contentType").getStringValue());
+  }
+
+  @Test
+  void shouldReportIsbnsSqsDidNotAccept() {
+    answerWith(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError")));
+
+    BookSynchronizationPublisher.EnqueueResult result = cut.enqueue(List.of("9780596004651", "9780321751041")).join();
+
+    assertEquals(1, result.getEnqueued());
+    assertEquals(List.of("9780321751041"), result.getFailed());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void answerWith(SendMessageBatchResult result) {
+    doAnswer(invocation -> {
+      AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> handler = invocation.getArgument(1);
+      handler.onSuccess(invocation.getArgument(0), result);
+      return null;
+    }).when(amazonSQSAsync).sendMessageBatchAsync(any(SendMessageBatchRequest.class), any(AsyncHandler.class));
+  }
+}
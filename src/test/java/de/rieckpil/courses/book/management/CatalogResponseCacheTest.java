@@ -0,0 +1,106 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogResponseCacheTest {
+
+  private static final byte[] CATALOG = "[{\"isbn\":\"42\"}]".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  void shouldRenderOnlyOncePerVersion() {
+    CatalogResponseCache cut = new CatalogResponseCache(DataSize.ofMegabytes(1));
+    AtomicInteger renderings = new AtomicInteger();
+
+    cut.get(1, "", outputStream -> {
+      renderings.incrementAndGet();
+      outputStream.write(CATALOG);
+    });
+    cut.get(1, "", outputStream -> renderings.incrementAndGet());
+    assertEquals(1, renderings.get());
+
+    cut.get(2, "", outputStream -> renderings.incrementAndGet());
+    assertEquals(2, renderings.get());
+  }
+
+  @Test
+  void shouldProvideGzipVariantOfSameContent() throws IOException {
+    CatalogResponseCache cut = new CatalogResponseCache(DataSize.ofMegabytes(1));
+
+    CatalogResponseCache.CachedResponse result = cut.get(1, "", outputStream -> outputStream.write(CATALOG));
+
+    assertArrayEquals(CATALOG, result.getIdentity());
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(result.getGzip()))) {
+      assertArrayEquals(CATALOG, gzip.readAllBytes());
+    }
+  }
+
+  @Test
+  void shouldLeaveResponsesLargerThanMaximumSizeToCaller() {
+    CatalogResponseCache cut = new CatalogResponseCache(DataSize.ofBytes(4));
+    AtomicInteger renderings = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      CatalogResponseCache.CachedResponse result = cut.get(1, "", outputStream -> {
+        renderings.incrementAndGet();
+        outputStream.write(CATALOG);
+      });
+      assertNull(result);
+    }
+
+    // known to be too large for this version, not rendered again
+    assertEquals(1, renderings.get());
+
+    cut.get(2, "", outputStream -> renderings.incrementAndGet());
+    assertEquals(2, renderings.get());
+  }
+
+  @Test
+  void shouldLeaveResponsesToCallerWhileAnotherRequestRendersThem() {
+    CatalogResponseCache cut = new CatalogResponseCache(DataSize.ofMegabytes(1));
+    AtomicInteger renderings = new AtomicInteger();
+
+    CatalogResponseCache.CachedResponse result = cut.get(1, "", outputStream -> {
+      assertNull(cut.get(1, "", nested -> renderings.incrementAndGet()));
+      outputStream.write(CATALOG);
+    });
+
+    assertArrayEquals(CATALOG, result.getIdentity());
+    assertEquals(0, renderings.get());
+  }
+
+  @Test
+  void shouldLeaveResponsesToCallerOnceAllEntriesAreTaken() {
+    CatalogResponseCache cut = new CatalogResponseCache(DataSize.ofMegabytes(1));
+    AtomicInteger renderings = new AtomicInteger();
+
+    for (int i = 0; i < CatalogResponseCache.MAX_ENTRIES; i++) {
+      cut.get(1, "fields-" + i, outputStream -> outputStream.write(CATALOG));
+    }
+
+    assertNull(cut.get(1, "one-too-many", outputStream -> renderings.incrementAndGet()));
+    assertEquals(0, renderings.get());
+  }
+
+  @Test
+  void shouldNegotiateGzipFromAcceptEncoding() {
+    assertTrue(CatalogResponseCache.acceptsGzip("gzip, deflate, br"));
+    assertTrue(CatalogResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+    assertTrue(CatalogResponseCache.acceptsGzip("*"));
+    assertFalse(CatalogResponseCache.acceptsGzip(null));
+    assertFalse(CatalogResponseCache.acceptsGzip("identity"));
+    assertFalse(CatalogResponseCache.acceptsGzip("gzip;q=0, *"));
+  }
+}
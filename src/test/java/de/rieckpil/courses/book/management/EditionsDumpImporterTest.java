@@ -0,0 +1,138 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EditionsDumpImporterTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldInsertCompleteIsbn13EditionsInBatches() throws IOException {
+    Path dump = writeDump(
+      edition("9780596004651", "Head first Java"),
+      "/type/work\t/works/OL1W\t1\t2022-01-01T00:00:00\t{\"title\": \"A work\"}",
+      edition(null, "Without ISBN"),
+      edition("9780321751041", "The Art of Computer Programming"),
+      edition("9780321160768", "Test-Driven Development"));
+
+    when(jdbcTemplate.queryForObject("SELECT nextval('books_seq')", Long.class)).thenReturn(1L);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1}, new int[]{0});
+
+    long imported = new EditionsDumpImporter(jdbcTemplate, dump, 2).importDump();
+
+    assertEquals(2, imported);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+
+    List<Object[]> firstBatch = rows.getAllValues().get(0);
+    assertEquals(1L, firstBatch.get(0)[0]);
+    assertEquals(2L, firstBatch.get(1)[0]);
+    assertEquals("9780321751041", firstBatch.get(1)[2]);
+    assertEquals(3L, rows.getAllValues().get(1).get(0)[0]);
+
+    // a single sequence call covers the whole id block
+    verify(jdbcTemplate, times(1)).queryForObject("SELECT nextval('books_seq')", Long.class);
+    assertEquals("5", Files.readString(dump.resolveSibling("editions.txt.gz.checkpoint")));
+  }
+
+  @Test
+  void shouldSkipMalformedEditions() throws IOException {
+    Path dump = writeDump(
+      "/type/edition\t/books/OL2M\t1\t2022-01-01T00:00:00\t{\"isbn_13\": [\"9780596004651\"",
+      "/type/edition\t/books/OL3M\t1\t2022-01-01T00:00:00\tnot json at all",
+      "/type/edition\t/books/OL4M",
+      edition("9780321751041", "The Art of Computer Programming"));
+
+    when(jdbcTemplate.queryForObject("SELECT nextval('books_seq')", Long.class)).thenReturn(1L);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+    long imported = new EditionsDumpImporter(jdbcTemplate, dump, 10).importDump();
+
+    assertEquals(1, imported);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+    assertEquals("9780321751041", rows.getValue().get(0)[2]);
+  }
+
+  @Test
+  void shouldContinueAfterCheckpoint() throws IOException {
+    Path dump = writeDump(
+      edition("9780596004651", "Head first Java"),
+      edition("9780321751041", "The Art of Computer Programming"));
+    Files.writeString(dump.resolveSibling("editions.txt.gz.checkpoint"), "1");
+
+    when(jdbcTemplate.queryForObject("SELECT nextval('books_seq')", Long.class)).thenReturn(51L);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+    long imported = new EditionsDumpImporter(jdbcTemplate, dump, 10).importDump();
+
+    assertEquals(1, imported);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+    assertEquals("9780321751041", rows.getValue().get(0)[2]);
+  }
+
+  @Test
+  void shouldNotInsertAnythingWhenNoEditionQualifies() throws IOException {
+    Path dump = writeDump(edition(null, "Without ISBN"));
+
+    long imported = new EditionsDumpImporter(jdbcTemplate, dump, 10).importDump();
+
+    assertEquals(0, imported);
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+  }
+
+  private Path writeDump(String... records) throws IOException {
+    Path dump = directory.resolve("editions.txt.gz");
+
+    try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(dump));
+         Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+      for (String record : records) {
+        writer.write(record);
+        writer.write('\n');
+      }
+    }
+    return dump;
+  }
+
+  private String edition(String isbn, String title) {
+    String isbns = isbn == null ? "" : "\"isbn_13\": [\"" + isbn + "\"], ";
+    return "/type/edition\t/books/OL1M\t3\t2022-01-01T00:00:00\t{" + isbns + "\"title\": \"" + title + "\", " +
+      "\"by_statement\": \"Author\", \"publishers\": [\"Publisher\"], \"covers\": [42], \"number_of_pages\": 100}";
+  }
+}
@@ -0,0 +1,37 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsbnTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"9780596004651", "9780321751041", "9780321160768", "9791032305690"})
+  void shouldAcceptValidIsbn13(String isbn) {
+    assertTrue(Isbn.isValid(isbn));
+    assertEquals(isbn, Isbn.of(isbn).toString());
+    assertEquals(Long.parseLong(isbn), Isbn.pack(isbn));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"9780596004652", "1234567891234", "0000000000000", "978059600465", "97805960046510", "978059600465X"})
+  void shouldRejectInvalidIsbn13(String isbn) {
+    assertFalse(Isbn.isValid(isbn));
+    assertEquals(Isbn.INVALID, Isbn.pack(isbn));
+    assertThrows(IllegalArgumentException.class, () -> Isbn.of(isbn));
+  }
+
+  @Test
+  void shouldRoundTripPackedValue() {
+    Isbn isbn = Isbn.of("9780596004651");
+
+    assertEquals(isbn, Isbn.of(isbn.toLong()));
+    assertFalse(Isbn.isValid(null));
+  }
+}
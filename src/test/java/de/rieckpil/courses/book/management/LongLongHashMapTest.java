@@ -0,0 +1,62 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongLongHashMapTest {
+
+  @Test
+  void shouldStoreOverwriteAndRemoveValues() {
+    LongLongHashMap cut = new LongLongHashMap(4);
+
+    cut.put(9780596004651L, 1L);
+    cut.put(9780321751041L, 2L);
+    cut.put(9780596004651L, 3L);
+
+    assertEquals(2, cut.size());
+    assertEquals(3L, cut.get(9780596004651L));
+    assertEquals(LongLongHashMap.NO_VALUE, cut.get(9780321160768L));
+
+    assertTrue(cut.remove(9780596004651L));
+    assertFalse(cut.remove(9780596004651L));
+    assertEquals(LongLongHashMap.NO_VALUE, cut.get(9780596004651L));
+    assertEquals(2L, cut.get(9780321751041L));
+  }
+
+  @Test
+  void shouldBehaveLikeHashMapUnderRandomOperations() {
+    LongLongHashMap cut = new LongLongHashMap(1);
+    Map<Long, Long> reference = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 50_000; i++) {
+      long key = 1 + random.nextInt(5_000);
+      if (random.nextInt(3) == 0) {
+        assertEquals(reference.remove(key) != null, cut.remove(key));
+      } else {
+        cut.put(key, i);
+        reference.put(key, (long) i);
+      }
+    }
+
+    assertEquals(reference.size(), cut.size());
+    for (long key = 1; key <= 5_000; key++) {
+      assertEquals(reference.getOrDefault(key, LongLongHashMap.NO_VALUE), cut.get(key));
+    }
+  }
+
+  @Test
+  void shouldRejectNonPositiveKeys() {
+    LongLongHashMap cut = new LongLongHashMap(4);
+
+    assertThrows(IllegalArgumentException.class, () -> cut.put(0L, 1L));
+  }
+}
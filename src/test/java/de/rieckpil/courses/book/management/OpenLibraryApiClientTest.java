@@ -1,5 +1,8 @@
 package de.rieckpil.courses.book.management;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -11,20 +14,32 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 
 class OpenLibraryApiClientTest {
 
   private MockWebServer mockWebServer;
+  private HttpClient httpClient;
+  private SimpleMeterRegistry meterRegistry;
   private OpenLibraryApiClient cut;
+  private OpenLibraryCircuitBreaker circuitBreaker;
 
   private static final String ISBN = "9780596004651";
 
@@ -44,7 +59,7 @@ class OpenLibraryApiClientTest {
   @BeforeEach
   void setup() throws IOException {
 
-    HttpClient httpClient = HttpClient.create()
+    this.httpClient = HttpClient.create()
       .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 1_000)
       .doOnConnected(connection ->
         connection.addHandlerLast(new ReadTimeoutHandler(1))
@@ -53,12 +68,12 @@ class OpenLibraryApiClientTest {
     this.mockWebServer = new MockWebServer();
     this.mockWebServer.start();
 
-    this.cut = new OpenLibraryApiClient(
-      WebClient.builder()
-        .clientConnector(new ReactorClientHttpConnector(httpClient))
-        .baseUrl(mockWebServer.url("/").toString())
-        .build()
-    );
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.circuitBreaker = new OpenLibraryCircuitBreaker(event -> {
+    }, meterRegistry, 2, Duration.ofMinutes(1));
+
+    this.cut = newClient(new OpenLibraryResilience(circuitBreaker, meterRegistry, 3, Duration.ofMillis(200),
+      Duration.ofSeconds(1), false, Duration.ofMillis(100)));
   }
 
   @AfterEach
@@ -180,4 +195,182 @@ class OpenLibraryApiClientTest {
     assertEquals("9780596004651", result.getIsbn());
     assertNull(result.getId());
   }
+
+  @Test
+  void shouldRetryWhenRemoteSystemIsUnavailable() {
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(503)
+      .setBody("Down for maintenance"));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(VALID_RESPONSE));
+
+    Book result = cut.fetchMetadataForBook(ISBN);
+
+    assertEquals("9780596004651", result.getIsbn());
+    assertEquals(2, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldRetryWhenRequestsAreThrottled() {
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(429)
+      .setBody("Too many requests"));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(429)
+      .setBody("Too many requests"));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(VALID_RESPONSE));
+
+    Book result = cut.fetchMetadataForBook(ISBN);
+
+    assertEquals("9780596004651", result.getIsbn());
+    assertEquals(3, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldReturnHedgedResponseWhenFirstRequestIsSlow() {
+    OpenLibraryApiClient hedgingClient = newHedgingClient(3);
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(VALID_RESPONSE)
+      .setHeadersDelay(800, TimeUnit.MILLISECONDS));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(VALID_RESPONSE.replace("Head first Java", "Head hedged Java")));
+
+    Book result = hedgingClient.fetchMetadataForBook(ISBN);
+
+    assertEquals("Head hedged Java", result.getTitle());
+    assertEquals(2, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldKeepHedgedRequestRunningWhenFirstRequestFails() {
+    // without retries only the hedged request can deliver the book
+    OpenLibraryApiClient hedgingClient = newHedgingClient(1);
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(503)
+      .setBody("Down for maintenance")
+      .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(VALID_RESPONSE.replace("Head first Java", "Head hedged Java"))
+      .setHeadersDelay(600, TimeUnit.MILLISECONDS));
+
+    Book result = hedgingClient.fetchMetadataForBook(ISBN);
+
+    assertEquals("Head hedged Java", result.getTitle());
+    assertEquals(2, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldReportFailureWhenHedgedRequestsFail() {
+    OpenLibraryApiClient hedgingClient = newHedgingClient(1);
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(503)
+      .setBody("Down for maintenance")
+      .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(503)
+      .setBody("Down for maintenance"));
+
+    assertThrows(WebClientResponseException.ServiceUnavailable.class, () -> hedgingClient.fetchMetadataForBook(ISBN));
+    assertEquals(2, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldNotRetryWhenRequestIsRejected() {
+    this.mockWebServer.enqueue(new MockResponse()
+      .setResponseCode(400)
+      .setBody("Bad bibkeys"));
+
+    assertThrows(WebClientResponseException.BadRequest.class, () -> cut.fetchMetadataForBook(ISBN));
+    assertEquals(1, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldRejectRequestsWhileCircuitBreakerIsOpen() {
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertThrows(OpenLibraryUnavailableException.class, () -> cut.fetchMetadataForBook(ISBN));
+    assertEquals(0, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldFetchSeveralBooksWithOneRequest() throws Exception {
+    ObjectNode response = (ObjectNode) new ObjectMapper().readTree(VALID_RESPONSE);
+    response.setAll((ObjectNode) new ObjectMapper().readTree(OpenLibraryApiClientTest.class
+      .getClassLoader()
+      .getResourceAsStream("stubs/openlibrary/success-9780321751041.json")));
+
+    this.mockWebServer.enqueue(new MockResponse()
+      .addHeader("Content-Type", "application/json; charset=utf-8")
+      .setBody(response.toString()));
+
+    Map<String, Book> result = cut.fetchMetadataForBooks(List.of(ISBN, "9780321751041", "9780321160768", ISBN));
+
+    assertEquals(2, result.size());
+    assertEquals("Head first Java", result.get(ISBN).getTitle());
+    assertEquals("9780321751041", result.get("9780321751041").getIsbn());
+
+    RecordedRequest recordedRequest = this.mockWebServer.takeRequest();
+    assertEquals("/api/books?jscmd=data&format=json&bibkeys=ISBN:" + ISBN + ",ISBN:9780321751041,ISBN:9780321160768",
+      recordedRequest.getPath());
+    assertEquals(1, this.mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldSplitLargeBatchesIntoSeveralRequests() {
+    List<String> isbns = LongStream.range(0, OpenLibraryApiClient.MAX_BIBKEYS_PER_REQUEST + 1)
+      .mapToObj(i -> String.valueOf(9780000000000L + i))
+      .collect(Collectors.toList());
+
+    for (int i = 0; i < 2; i++) {
+      this.mockWebServer.enqueue(new MockResponse()
+        .addHeader("Content-Type", "application/json; charset=utf-8")
+        .setBody("{}"));
+    }
+
+    Map<String, Book> result = cut.fetchMetadataForBooks(isbns);
+
+    assertTrue(result.isEmpty());
+    assertEquals(2, this.mockWebServer.getRequestCount());
+  }
+
+  private OpenLibraryApiClient newClient(OpenLibraryResilience resilience) {
+    return new OpenLibraryApiClient(
+      WebClient.builder()
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .baseUrl(mockWebServer.url("/").toString())
+        .build(),
+      mock(BookMetadataCache.class),
+      resilience,
+      new OpenLibraryRateLimiter(1_000, 100)
+    );
+  }
+
+  // hedges after 100 ms, the quick requests recorded up front push the 95th percentile below that
+  private OpenLibraryApiClient newHedgingClient(int maxAttempts) {
+    OpenLibraryResilience resilience = new OpenLibraryResilience(circuitBreaker, meterRegistry, maxAttempts,
+      Duration.ofMillis(200), Duration.ofSeconds(1), true, Duration.ofMillis(100));
+
+    for (int i = 0; i < 20; i++) {
+      resilience.decorate(Mono.just(ISBN)).block();
+    }
+    assertEquals(Duration.ofMillis(100), resilience.hedgingDelay());
+
+    return newClient(resilience);
+  }
 }
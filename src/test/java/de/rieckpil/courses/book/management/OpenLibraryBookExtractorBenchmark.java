@@ -0,0 +1,85 @@
+package de.rieckpil.courses.book.management;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former ObjectNode based conversion with {@link OpenLibraryBookExtractor} on the
+ * recorded Open Library responses. Run with {@code ./mvnw verify -Pbenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class OpenLibraryBookExtractorBenchmark {
+
+  @Param({"9780596004651", "9780321751041", "9780321160768"})
+  public String isbn;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private byte[] payload;
+
+  @Setup
+  public void setup() throws IOException {
+    try (InputStream inputStream = getClass().getClassLoader()
+      .getResourceAsStream("stubs/openlibrary/success-" + isbn + ".json")) {
+      this.payload = inputStream.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public Book objectNodeTree() throws IOException {
+    ObjectNode result = objectMapper.readValue(payload, ObjectNode.class);
+    JsonNode content = result.get("ISBN:" + isbn);
+
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setThumbnailUrl(content.get("cover").get("small").asText());
+    book.setTitle(content.get("title").asText());
+    book.setAuthor(content.get("authors").get(0).get("name").asText());
+    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
+    book.setPages(content.get("number_of_pages").asLong(0));
+    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
+    book.setGenre(content.get("subjects") == null ? "n.A" : content.get("subjects").get(0).get("name").asText("n.A."));
+    return book;
+  }
+
+  @Benchmark
+  public Map<String, Book> streamingExtractor() throws IOException {
+    return OpenLibraryBookExtractor.extractBooks(new ByteArrayInputStream(payload), List.of(isbn));
+  }
+
+  @Test
+  void runBenchmarks() throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(OpenLibraryBookExtractorBenchmark.class.getSimpleName())
+      .build())
+      .run();
+  }
+}
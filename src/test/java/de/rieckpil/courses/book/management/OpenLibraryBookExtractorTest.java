@@ -0,0 +1,109 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenLibraryBookExtractorTest {
+
+  @Test
+  void shouldExtractBookFromRecordedResponse() throws IOException {
+    try (InputStream payload = getClass().getClassLoader().getResourceAsStream("stubs/openlibrary/success-9780596004651.json")) {
+      Map<String, Book> result = OpenLibraryBookExtractor.extractBooks(payload, List.of("9780596004651"));
+
+      Book book = result.get("9780596004651");
+      assertEquals("Head first Java", book.getTitle());
+      assertEquals("https://covers.openlibrary.org/b/id/388761-S.jpg", book.getThumbnailUrl());
+      assertEquals("Kathy Sierra", book.getAuthor());
+      assertEquals("Your brain on Java--a learner's guide--Cover.Includes index.", book.getDescription());
+      assertEquals("Java (Computer program language)", book.getGenre());
+      assertEquals("O'Reilly", book.getPublisher());
+      assertEquals(619, book.getPages());
+    }
+  }
+
+  @Test
+  void shouldSkipEntriesThatWereNotRequested() throws IOException {
+    Map<String, Book> result = OpenLibraryBookExtractor.extractBooks(json("""
+      {
+        "ISBN:9780321751041": { "title": "The Art of Computer Programming", "links": [{ "url": "x" }] },
+        "ISBN:9780596004651": {
+          "title": "Head first Java",
+          "subjects": [{ "name": "Java", "url": "y" }, { "name": "Programming" }],
+          "authors": [{ "name": "Kathy Sierra" }, { "name": "Bert Bates" }],
+          "publishers": [{ "name": "O'Reilly" }],
+          "ebooks": [{ "availability": "restricted", "formats": {} }],
+          "number_of_pages": 619,
+          "cover": { "small": "s.jpg", "large": "l.jpg" }
+        }
+      }
+      """), List.of("9780596004651"));
+
+    assertEquals(1, result.size());
+    assertEquals("Kathy Sierra", result.get("9780596004651").getAuthor());
+    assertEquals("Java", result.get("9780596004651").getGenre());
+    assertEquals("n.A", result.get("9780596004651").getDescription());
+  }
+
+  @Test
+  void shouldMapEditionOfDataDump() throws IOException {
+    Book book = OpenLibraryBookExtractor.extractEdition("""
+      {
+        "type": { "key": "/type/edition" },
+        "title": "Head first Java",
+        "isbn_10": ["0596004656"],
+        "isbn_13": ["978-0-596-00465-1"],
+        "authors": [{ "key": "/authors/OL1400543A" }],
+        "by_statement": "Kathy Sierra",
+        "publishers": ["O'Reilly"],
+        "covers": [388761],
+        "number_of_pages": 619,
+        "notes": { "type": "/type/text", "value": "Includes index." },
+        "subjects": ["Java (Computer program language)"]
+      }
+      """);
+
+    assertEquals("9780596004651", book.getIsbn());
+    assertEquals("https://covers.openlibrary.org/b/id/388761-S.jpg", book.getThumbnailUrl());
+    assertEquals("Kathy Sierra", book.getAuthor());
+    assertEquals("Includes index.", book.getDescription());
+    assertEquals("Java (Computer program language)", book.getGenre());
+    assertEquals(619, book.getPages());
+  }
+
+  @Test
+  void shouldSkipEditionsWithoutIsbn13() throws IOException {
+    assertNull(OpenLibraryBookExtractor.extractEdition("""
+      { "title": "Head first Java", "isbn_10": ["0596004656"], "by_statement": "Kathy Sierra",
+        "publishers": ["O'Reilly"], "covers": [388761], "number_of_pages": 619 }
+      """));
+  }
+
+  @Test
+  void shouldLeaveOutIncompleteEntries() throws IOException {
+    Map<String, Book> result = OpenLibraryBookExtractor.extractBooks(json("""
+      { "ISBN:9780596004651": { "title": "Head first Java", "number_of_pages": 619 } }
+      """), List.of("9780596004651"));
+
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void shouldRejectUnexpectedPayload() {
+    assertThrows(IOException.class, () -> OpenLibraryBookExtractor.extractBooks(json("[]"), List.of("9780596004651")));
+  }
+
+  private InputStream json(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
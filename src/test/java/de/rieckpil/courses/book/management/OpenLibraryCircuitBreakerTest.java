@@ -0,0 +1,101 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OpenLibraryCircuitBreakerTest {
+
+  @Mock
+  private ApplicationEventPublisher applicationEventPublisher;
+
+  @Mock
+  private Clock clock;
+
+  private SimpleMeterRegistry meterRegistry;
+  private OpenLibraryCircuitBreaker cut;
+
+  @BeforeEach
+  void setup() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.cut = new OpenLibraryCircuitBreaker(applicationEventPublisher, meterRegistry, 3, Duration.ofMinutes(1), clock);
+  }
+
+  @Test
+  void shouldStayClosedBelowFailureThreshold() {
+    cut.onFailure();
+    cut.onFailure();
+    cut.onSuccess();
+    cut.onFailure();
+    cut.onFailure();
+
+    assertTrue(cut.tryAcquirePermission());
+    assertEquals(OpenLibraryCircuitBreaker.State.CLOSED, cut.getState());
+    verifyNoInteractions(applicationEventPublisher);
+  }
+
+  @Test
+  void shouldRejectRequestsOnceOpen() {
+    when(clock.millis()).thenReturn(0L, 59_999L);
+
+    cut.onFailure();
+    cut.onFailure();
+    cut.onFailure();
+
+    assertFalse(cut.tryAcquirePermission());
+    assertEquals(1, meterRegistry.get("clients.open-library.circuit-breaker.open").gauge().value());
+
+    ArgumentCaptor<OpenLibraryCircuitBreakerEvent> event = ArgumentCaptor.forClass(OpenLibraryCircuitBreakerEvent.class);
+    verify(applicationEventPublisher).publishEvent(event.capture());
+    assertTrue(event.getValue().isOpen());
+  }
+
+  @Test
+  void shouldCloseAgainWhenTrialRequestSucceeds() {
+    when(clock.millis()).thenReturn(0L, 60_000L);
+
+    cut.onFailure();
+    cut.onFailure();
+    cut.onFailure();
+
+    assertTrue(cut.tryAcquirePermission());
+    assertEquals(OpenLibraryCircuitBreaker.State.HALF_OPEN, cut.getState());
+
+    cut.onSuccess();
+
+    assertEquals(OpenLibraryCircuitBreaker.State.CLOSED, cut.getState());
+    verify(applicationEventPublisher, times(2)).publishEvent(any(Object.class));
+  }
+
+  @Test
+  void shouldOpenAgainWhenTrialRequestFails() {
+    when(clock.millis()).thenReturn(0L, 60_000L, 60_001L);
+
+    cut.onFailure();
+    cut.onFailure();
+    cut.onFailure();
+    cut.tryAcquirePermission();
+    cut.onFailure();
+
+    assertFalse(cut.tryAcquirePermission());
+    assertEquals(OpenLibraryCircuitBreaker.State.OPEN, cut.getState());
+  }
+}
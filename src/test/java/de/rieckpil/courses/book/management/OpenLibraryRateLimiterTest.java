@@ -0,0 +1,46 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OpenLibraryRateLimiterTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Test
+  void shouldHandOutBurstWithoutWaiting() {
+    OpenLibraryRateLimiter cut = new OpenLibraryRateLimiter(10, 3, nanoTime::get);
+
+    assertEquals(0, cut.reserve());
+    assertEquals(0, cut.reserve());
+    assertEquals(0, cut.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), cut.reserve());
+  }
+
+  @Test
+  void shouldQueueWaitingCallersBehindEachOther() {
+    OpenLibraryRateLimiter cut = new OpenLibraryRateLimiter(10, 1, nanoTime::get);
+
+    cut.reserve();
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), cut.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(200), cut.reserve());
+  }
+
+  @Test
+  void shouldRefillAtConfiguredRateUpToBurst() {
+    OpenLibraryRateLimiter cut = new OpenLibraryRateLimiter(10, 2, nanoTime::get);
+
+    cut.reserve();
+    cut.reserve();
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    assertEquals(0, cut.reserve());
+    assertEquals(0, cut.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), cut.reserve());
+  }
+}
@@ -1,9 +1,11 @@
 package de.rieckpil.courses.book.management;
 
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
@@ -12,6 +14,8 @@ import org.springframework.test.web.client.response.MockRestResponseCreators;
 import org.springframework.web.client.HttpServerErrorException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
@@ -24,8 +28,22 @@ class OpenLibraryRestTemplateApiClientTest {
   @Autowired
   private MockRestServiceServer mockRestServiceServer;
 
+  @MockBean
+  private BookMetadataCache bookMetadataCache;
+
+  @MockBean
+  private OpenLibraryRateLimiter openLibraryRateLimiter;
+
+  @MockBean
+  private OpenLibraryResilience openLibraryResilience;
+
   private static final String ISBN = "9780596004651";
 
+  @BeforeEach
+  void setup() {
+    when(openLibraryResilience.decorate(any())).then(invocation -> invocation.getArgument(0));
+  }
+
   @Test
   void shouldInjectBeans() {
     assertNotNull(cut);
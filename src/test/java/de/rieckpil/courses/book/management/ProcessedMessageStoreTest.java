@@ -0,0 +1,110 @@
+package de.rieckpil.courses.book.management;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProcessedMessageStoreTest {
+
+  private static final String ISBN = "9780596004651";
+  private static final long NOW = 1_654_077_600_000L;
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @Mock
+  private Clock clock;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private ProcessedMessageStore cut;
+
+  @BeforeEach
+  void setup() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.cut = new ProcessedMessageStore(jdbcTemplate, meterRegistry, 2, Duration.ofDays(1), clock);
+  }
+
+  @Test
+  void shouldAnswerRedeliveriesAndDuplicatesFromMemory() {
+    when(clock.millis()).thenReturn(NOW);
+
+    cut.markProcessed("message-1", ISBN);
+
+    assertTrue(cut.isProcessed("message-1", ISBN));
+    assertTrue(cut.isProcessed("message-2", ISBN));
+    assertTrue(cut.isProcessed("message-1", "9780321160768"));
+
+    verify(jdbcTemplate).update(anyString(), eq("message-1"), eq(ISBN), eq(new Timestamp(NOW)));
+    verify(jdbcTemplate, never()).queryForList(anyString(), eq(Timestamp.class), any(), any(), any());
+    assertEquals(3, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+  }
+
+  @Test
+  void shouldRememberMessagesFoundInDatabase() {
+    when(clock.millis()).thenReturn(NOW);
+    when(jdbcTemplate.queryForList(anyString(), eq(Timestamp.class), eq("message-1"), eq(ISBN), any()))
+      .thenReturn(List.of(new Timestamp(NOW - 1_000)));
+
+    assertTrue(cut.isProcessed("message-1", ISBN));
+    assertTrue(cut.isProcessed("message-1", ISBN));
+
+    verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Timestamp.class), any(), any(), any());
+  }
+
+  @Test
+  void shouldNotConsiderExpiredMessagesAsProcessed() {
+    when(clock.millis()).thenReturn(NOW, NOW + Duration.ofDays(1).toMillis());
+
+    cut.markProcessed("message-1", ISBN);
+
+    assertFalse(cut.isProcessed("message-1", ISBN));
+    assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+  }
+
+  @Test
+  void shouldPurgeExpiredMessages() {
+    when(clock.millis()).thenReturn(NOW, NOW + Duration.ofDays(2).toMillis());
+
+    cut.markProcessed("message-1", ISBN);
+
+    when(jdbcTemplate.update(anyString(), any(Timestamp.class))).thenReturn(3);
+
+    assertEquals(3, cut.purgeExpired());
+    assertEquals(0, cut.size());
+    verify(jdbcTemplate).update(anyString(), eq(new Timestamp(NOW + Duration.ofDays(1).toMillis())));
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedMessages() {
+    when(clock.millis()).thenReturn(NOW);
+
+    cut.markProcessed("message-1", "9780321751041");
+    cut.markProcessed("message-2", "9780321160768");
+    cut.markProcessed("message-3", ISBN);
+
+    assertEquals(2, cut.size());
+    assertFalse(cut.isProcessed("message-1", "9780321751041"));
+  }
+}
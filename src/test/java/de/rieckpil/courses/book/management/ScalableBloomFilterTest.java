@@ -0,0 +1,65 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+  private static final long FIRST_ISBN = 9_780_000_000_000L;
+
+  @Test
+  void shouldNeverReportStoredKeysAsAbsent() {
+    ScalableBloomFilter cut = new ScalableBloomFilter(1_000, 0.01);
+
+    for (long key = FIRST_ISBN; key < FIRST_ISBN + 10_000; key++) {
+      cut.put(key);
+    }
+
+    for (long key = FIRST_ISBN; key < FIRST_ISBN + 10_000; key++) {
+      assertTrue(cut.mightContain(key));
+    }
+  }
+
+  @Test
+  void shouldAddStagesWhenCapacityIsExceeded() {
+    ScalableBloomFilter cut = new ScalableBloomFilter(1_000, 0.01);
+    long initialSize = cut.bitSize();
+
+    for (long key = FIRST_ISBN; key < FIRST_ISBN + 3_500; key++) {
+      cut.put(key);
+    }
+
+    assertEquals(3, cut.stageCount());
+    assertTrue(cut.bitSize() > 6 * initialSize);
+  }
+
+  @Test
+  void shouldKeepFalsePositiveRateCloseToTarget() {
+    ScalableBloomFilter cut = new ScalableBloomFilter(1_000, 0.01);
+
+    for (long key = FIRST_ISBN; key < FIRST_ISBN + 20_000; key++) {
+      cut.put(key);
+    }
+
+    int falsePositives = 0;
+    for (long key = FIRST_ISBN + 1_000_000; key < FIRST_ISBN + 1_100_000; key++) {
+      if (cut.mightContain(key)) {
+        falsePositives++;
+      }
+    }
+
+    assertTrue(falsePositives / 100_000.0 < 0.025, "false-positive rate was " + falsePositives / 100_000.0);
+    assertTrue(cut.expectedFalsePositiveRate() < 0.025);
+  }
+
+  @Test
+  void shouldReportUnknownKeysOfEmptyFilterAsAbsent() {
+    ScalableBloomFilter cut = new ScalableBloomFilter(100, 0.01);
+
+    assertFalse(cut.mightContain(FIRST_ISBN));
+    assertEquals(0, cut.approximateEntries());
+  }
+}
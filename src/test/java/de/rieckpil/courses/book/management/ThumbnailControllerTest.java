@@ -0,0 +1,111 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ThumbnailController.class)
+class ThumbnailControllerTest {
+
+  private static final String ISBN = "9780596004651";
+  private static final String THUMBNAIL_URL = "https://covers.openlibrary.org/b/id/388761-S.jpg";
+
+  @MockBean
+  private ThumbnailStore thumbnailStore;
+
+  @MockBean
+  private BookCache bookCache;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Test
+  void shouldStreamStoredThumbnailWhenSendfileIsNotSupported() throws Exception {
+    Thumbnail thumbnail = new Thumbnail(128, 5, "image/jpeg");
+
+    when(thumbnailStore.find(ISBN)).thenReturn(Optional.of(thumbnail));
+    doAnswer(invocation -> {
+      WritableByteChannel target = invocation.getArgument(1);
+      target.write(ByteBuffer.wrap("cover".getBytes(StandardCharsets.UTF_8)));
+      return null;
+    }).when(thumbnailStore).transferTo(eq(thumbnail), any(WritableByteChannel.class));
+
+    this.mockMvc
+      .perform(get("/api/books/{isbn}/thumbnail", ISBN))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType("image/jpeg"))
+      .andExpect(header().string(HttpHeaders.CACHE_CONTROL, ThumbnailController.CACHE_CONTROL))
+      .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+      .andExpect(content().string("cover"));
+
+    verify(thumbnailStore, never()).prefetch(any(Book.class));
+  }
+
+  @Test
+  void shouldHandStoredThumbnailToSendfileWhenSupported() throws Exception {
+    Thumbnail thumbnail = new Thumbnail(128, 5, "image/jpeg");
+    Path file = Path.of("thumbnails", "thumbnails.bin");
+
+    when(thumbnailStore.find(ISBN)).thenReturn(Optional.of(thumbnail));
+    when(thumbnailStore.getFile()).thenReturn(file);
+
+    this.mockMvc
+      .perform(get("/api/books/{isbn}/thumbnail", ISBN)
+        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType("image/jpeg"))
+      .andExpect(header().string(HttpHeaders.CACHE_CONTROL, ThumbnailController.CACHE_CONTROL))
+      .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString()))
+      .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 128L))
+      .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 133L));
+
+    verify(thumbnailStore, never()).transferTo(any(Thumbnail.class), any(WritableByteChannel.class));
+  }
+
+  @Test
+  void shouldRedirectToOriginAndPrefetchWhenThumbnailIsNotStored() throws Exception {
+    Book book = new Book();
+    book.setIsbn(ISBN);
+    book.setThumbnailUrl(THUMBNAIL_URL);
+
+    when(thumbnailStore.find(ISBN)).thenReturn(Optional.empty());
+    when(bookCache.findByIsbn(ISBN)).thenReturn(book);
+
+    this.mockMvc
+      .perform(get("/api/books/{isbn}/thumbnail", ISBN))
+      .andExpect(status().isFound())
+      .andExpect(redirectedUrl(THUMBNAIL_URL));
+
+    verify(thumbnailStore).prefetch(book);
+  }
+
+  @Test
+  void shouldReturnNotFoundForUnknownBook() throws Exception {
+    when(thumbnailStore.find(ISBN)).thenReturn(Optional.empty());
+    when(bookCache.findByIsbn(ISBN)).thenReturn(null);
+
+    this.mockMvc
+      .perform(get("/api/books/{isbn}/thumbnail", ISBN))
+      .andExpect(status().isNotFound());
+
+    verify(thumbnailStore, never()).prefetch(any(Book.class));
+  }
+}
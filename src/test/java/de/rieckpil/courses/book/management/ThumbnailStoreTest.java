@@ -0,0 +1,96 @@
+package de.rieckpil.courses.book.management;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailStoreTest {
+
+  private static final String ISBN = "9780596004651";
+  private static final byte[] COVER = "not really a jpeg".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path directory;
+
+  private ThumbnailStore cut;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.cut = new ThumbnailStore(WebClient.create(), directory, DataSize.ofKilobytes(4));
+    this.cut.open();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    cut.close();
+  }
+
+  @Test
+  void shouldServeStoredCoverFromBlobFile() throws IOException {
+    cut.store(ISBN, "image/jpeg", COVER);
+
+    Thumbnail result = cut.find(ISBN).orElseThrow();
+
+    assertEquals("image/jpeg", result.getContentType());
+    assertArrayEquals(COVER, read(result));
+  }
+
+  @Test
+  void shouldKeepFirstCoverForSameIsbn() throws IOException {
+    cut.store(ISBN, "image/jpeg", COVER);
+    cut.store(ISBN, "image/png", new byte[]{1, 2, 3});
+
+    assertEquals(1, cut.size());
+    assertArrayEquals(COVER, read(cut.find(ISBN).orElseThrow()));
+  }
+
+  @Test
+  void shouldRebuildIndexWhenReopened() throws IOException {
+    cut.store(ISBN, "image/jpeg", COVER);
+    cut.store("9780321751041", "image/png", new byte[]{1, 2, 3});
+    cut.close();
+
+    cut = new ThumbnailStore(WebClient.create(), directory, DataSize.ofKilobytes(4));
+    cut.open();
+
+    assertEquals(2, cut.size());
+    assertArrayEquals(COVER, read(cut.find(ISBN).orElseThrow()));
+    assertArrayEquals(new byte[]{1, 2, 3}, read(cut.find("9780321751041").orElseThrow()));
+
+    cut.store("9780321160768", "image/jpeg", COVER);
+    assertTrue(cut.find("9780321160768").isPresent());
+  }
+
+  @Test
+  void shouldRejectCoversThatDoNotFitAnymore() {
+    assertNull(cut.store(ISBN, "image/jpeg", new byte[8192]));
+    assertEquals(Optional.empty(), cut.find(ISBN));
+  }
+
+  @Test
+  void shouldIgnoreInvalidIsbn() {
+    assertNull(cut.store("1234567891234", "image/jpeg", COVER));
+    assertEquals(Optional.empty(), cut.find("1234567891234"));
+  }
+
+  private byte[] read(Thumbnail thumbnail) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    cut.transferTo(thumbnail, Channels.newChannel(outputStream));
+    return outputStream.toByteArray();
+  }
+}
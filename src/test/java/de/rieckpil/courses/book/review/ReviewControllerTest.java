@@ -3,12 +3,14 @@ package de.rieckpil.courses.book.review;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.rieckpil.courses.book.management.CatalogVersion;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -25,6 +27,9 @@ class ReviewControllerTest {
   @MockBean
   private ReviewService reviewService;
 
+  @MockBean
+  private CatalogVersion catalogVersion;
+
   @Autowired
   private MockMvc mockMvc;
 
@@ -56,6 +61,18 @@ class ReviewControllerTest {
       .andExpect(jsonPath("$.size()", Matchers.is(1)));
   }
 
+  @Test
+  void shouldReturnNotModifiedWhenReviewsDidNotChange() throws Exception {
+    when(catalogVersion.current()).thenReturn(42L);
+
+    this.mockMvc
+      .perform(get("/api/books/reviews")
+        .header(HttpHeaders.IF_NONE_MATCH, "\"reviews-42-20-none\""))
+      .andExpect(status().isNotModified());
+
+    verifyNoInteractions(reviewService);
+  }
+
   @Test
   void shouldNotReturnReviewStatisticsWhenUserIsUnauthenticated() throws Exception {
     this.mockMvc
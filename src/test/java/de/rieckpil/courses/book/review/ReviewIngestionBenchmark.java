@@ -0,0 +1,163 @@
+package de.rieckpil.courses.book.review;
+
+import de.rieckpil.courses.book.management.Book;
+import de.rieckpil.courses.book.management.User;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Runs the same Hibernate ingestion of books and their reviews twice with the same batching
+ * settings, once with the former {@code GenerationType.IDENTITY} ids (overridden by
+ * {@code identity-ids-orm.xml}) and once with the pooled-lo sequences the entities map today.
+ * Run with {@code ./mvnw verify -Pbenchmark}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReviewIngestionBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReviewIngestionBenchmark.class.getName());
+
+  private static final int BOOKS = 2_000;
+  private static final int REVIEWS_PER_BOOK = 5;
+  private static final int FLUSH_INTERVAL = 50;
+
+  @Container
+  static PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:12.3")
+    .withDatabaseName("test")
+    .withUsername("duke")
+    .withPassword("s3cret");
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", container::getJdbcUrl);
+    registry.add("spring.datasource.password", container::getPassword);
+    registry.add("spring.datasource.username", container::getUsername);
+  }
+
+  @Nested
+  @DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true",
+    "spring.jpa.mapping-resources=identity-ids-orm.xml"
+  })
+  @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+  class IdentityIds {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ingest() {
+      benchmark("IDENTITY ids", IdentityGenerator.class, 1_000_000, entityManager, jdbcTemplate);
+    }
+  }
+
+  @Nested
+  @DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"
+  })
+  @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+  class PooledLoSequenceIds {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ingest() {
+      benchmark("pooled-lo sequence ids", SequenceStyleGenerator.class, 2_000_000, entityManager, jdbcTemplate);
+    }
+  }
+
+  private void benchmark(String mapping,
+                         Class<? extends IdentifierGenerator> expectedGenerator,
+                         long isbnOffset,
+                         EntityManager entityManager,
+                         JdbcTemplate jdbcTemplate) {
+    // make sure the mapping under test is the one actually in use
+    SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    assertInstanceOf(expectedGenerator, sessionFactory.getMetamodel().entityPersister(Book.class).getIdentifierGenerator());
+    assertInstanceOf(expectedGenerator, sessionFactory.getMetamodel().entityPersister(Review.class).getIdentifierGenerator());
+
+    User user = new User();
+    user.setName("Duke");
+    user.setEmail("duke@spring.io");
+    user.setCreatedAt(LocalDateTime.now());
+    entityManager.persist(user);
+    entityManager.flush();
+
+    int booksBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books", Integer.class);
+    int reviewsBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reviews", Integer.class);
+
+    long start = System.nanoTime();
+    ingest(isbnOffset, user, entityManager);
+    long nanos = System.nanoTime() - start;
+
+    assertEquals(booksBefore + BOOKS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books", Integer.class));
+    assertEquals(reviewsBefore + BOOKS * REVIEWS_PER_BOOK, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reviews", Integer.class));
+
+    LOG.info("Hibernate ingestion with {}: {} inserts/s", mapping, insertsPerSecond(BOOKS * (1 + REVIEWS_PER_BOOK), nanos));
+  }
+
+  private void ingest(long isbnOffset, User user, EntityManager entityManager) {
+    for (int i = 0; i < BOOKS; i++) {
+      Book book = new Book();
+      book.setIsbn(isbn(isbnOffset + i));
+      book.setTitle("Book " + book.getIsbn());
+      entityManager.persist(book);
+
+      for (int j = 0; j < REVIEWS_PER_BOOK; j++) {
+        Review review = new Review();
+        review.setTitle("Review");
+        review.setContent("Good read");
+        review.setRating(4);
+        review.setCreatedAt(LocalDateTime.now());
+        review.setBook(book);
+        review.setUser(user);
+        entityManager.persist(review);
+      }
+
+      if ((i + 1) % FLUSH_INTERVAL == 0) {
+        entityManager.flush();
+        entityManager.clear();
+        user = entityManager.getReference(User.class, user.getId());
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private static String isbn(long number) {
+    return String.format("%013d", number);
+  }
+
+  private static long insertsPerSecond(int rows, long nanos) {
+    return rows * 1_000_000_000L / Math.max(1, nanos);
+  }
+}
@@ -1,7 +1,9 @@
 package de.rieckpil.courses.book.review;
 
 import de.rieckpil.courses.book.management.Book;
-import de.rieckpil.courses.book.management.BookRepository;
+import de.rieckpil.courses.book.management.BookCache;
+import de.rieckpil.courses.book.management.CatalogVersion;
+import de.rieckpil.courses.book.management.IsbnIndex;
 import de.rieckpil.courses.book.management.User;
 import de.rieckpil.courses.book.management.UserService;
 import org.junit.jupiter.api.DisplayName;
@@ -25,11 +27,17 @@ class ReviewServiceTest {
   private UserService userService;
 
   @Mock
-  private BookRepository bookRepository;
+  private BookCache bookCache;
 
   @Mock
   private ReviewRepository reviewRepository;
 
+  @Mock
+  private CatalogVersion catalogVersion;
+
+  @Mock
+  private IsbnIndex isbnIndex;
+
   @InjectMocks
   private ReviewService cut;
 
@@ -42,14 +50,14 @@ class ReviewServiceTest {
     assertNotNull(reviewRepository);
     assertNotNull(mockedReviewVerifier);
     assertNotNull(userService);
-    assertNotNull(bookRepository);
+    assertNotNull(bookCache);
     assertNotNull(cut);
   }
 
   @Test
   @DisplayName("Write english sentence")
   void shouldThrowExceptionWhenReviewedBookIsNotExisting() {
-    when(bookRepository.findByIsbn(ISBN)).thenReturn(null);
+    when(bookCache.findByIsbn(ISBN)).thenReturn(null);
 
     assertThrows(IllegalArgumentException.class,
       () -> cut.createBookReview(ISBN, null, USERNAME, EMAIL));
@@ -60,7 +68,7 @@ class ReviewServiceTest {
     // arrange - given
     BookReviewRequest bookReviewRequest =
       new BookReviewRequest("Title", "BADCONTENT!", 1);
-    when(bookRepository.findByIsbn(ISBN)).thenReturn(new Book());
+    when(bookCache.findByIsbn(ISBN)).thenReturn(new Book());
     when(mockedReviewVerifier.doesMeetQualityStandards(bookReviewRequest.getReviewContent())).thenReturn(false);
 
     // act - when
@@ -77,7 +85,7 @@ class ReviewServiceTest {
     BookReviewRequest bookReviewRequest =
       new BookReviewRequest("Title", "GOOD CONTENT!", 1);
 
-    when(bookRepository.findByIsbn(ISBN)).thenReturn(new Book());
+    when(bookCache.findByIsbn(ISBN)).thenReturn(new Book());
     when(mockedReviewVerifier.doesMeetQualityStandards(bookReviewRequest.getReviewContent())).thenReturn(true);
     when(userService.getOrCreateUser(USERNAME, EMAIL)).thenReturn(new User());
     when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> {
@@ -90,5 +98,6 @@ class ReviewServiceTest {
 
     Long expected = 42L;
     assertEquals(expected, result);
+    verify(catalogVersion).incrementAfterCommit();
   }
 }
@@ -3,32 +3,50 @@ package de.rieckpil.courses.cache;
 import de.rieckpil.courses.book.management.Book;
 import de.rieckpil.courses.book.management.BookController;
 import de.rieckpil.courses.book.management.BookManagementService;
+import de.rieckpil.courses.book.management.CatalogResponseCache;
+import de.rieckpil.courses.book.management.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BookController.class)
+@Import(CatalogResponseCache.class)
 class BookControllerOneTest {
 
   @MockBean
   private BookManagementService bookManagementService;
 
+  @MockBean
+  private CatalogVersion catalogVersion;
+
+  @Autowired
+  private CatalogResponseCache catalogResponseCache;
+
   @Autowired
   private MockMvc mockMvc;
 
+  @BeforeEach
+  void setup() {
+    catalogResponseCache.clear();
+  }
+
   @Test
   void shouldGetEmptyArrayWhenNoBooksExists() throws Exception {
     MvcResult mvcResult = this.mockMvc
@@ -58,7 +76,11 @@ class BookControllerOneTest {
     Book bookTwo = createBook(2L, "84", "Java 15", "Duke", "Good book",
       "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
 
-    when(bookManagementService.getAllBooks()).thenReturn(List.of(bookOne, bookTwo));
+    doAnswer(invocation -> {
+      Consumer<Book> consumer = invocation.getArgument(0);
+      List.of(bookOne, bookTwo).forEach(consumer);
+      return null;
+    }).when(bookManagementService).streamAllBooks(any());
 
     this.mockMvc
       .perform(get("/api/books")
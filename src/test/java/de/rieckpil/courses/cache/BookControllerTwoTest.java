@@ -3,10 +3,14 @@ package de.rieckpil.courses.cache;
 import de.rieckpil.courses.book.management.Book;
 import de.rieckpil.courses.book.management.BookController;
 import de.rieckpil.courses.book.management.BookManagementService;
+import de.rieckpil.courses.book.management.CatalogResponseCache;
+import de.rieckpil.courses.book.management.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
@@ -14,14 +18,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BookController.class)
+@Import(CatalogResponseCache.class)
 // @ActiveProfiles("foobar")
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
 class BookControllerTwoTest {
@@ -29,9 +36,20 @@ class BookControllerTwoTest {
   @MockBean
   private BookManagementService bookManagementService;
 
+  @MockBean
+  private CatalogVersion catalogVersion;
+
+  @Autowired
+  private CatalogResponseCache catalogResponseCache;
+
   @Autowired
   private MockMvc mockMvc;
 
+  @BeforeEach
+  void setup() {
+    catalogResponseCache.clear();
+  }
+
   @Test
   void shouldGetEmptyArrayWhenNoBooksExists() throws Exception {
     MvcResult mvcResult = this.mockMvc
@@ -61,7 +79,11 @@ class BookControllerTwoTest {
     Book bookTwo = createBook(2L, "84", "Java 15", "Duke", "Good book",
       "Software Engineering", 200L, "Oracle", "ftp://localhost:42");
 
-    when(bookManagementService.getAllBooks()).thenReturn(List.of(bookOne, bookTwo));
+    doAnswer(invocation -> {
+      Consumer<Book> consumer = invocation.getArgument(0);
+      List.of(bookOne, bookTwo).forEach(consumer);
+      return null;
+    }).when(bookManagementService).streamAllBooks(any());
 
     this.mockMvc
       .perform(get("/api/books")
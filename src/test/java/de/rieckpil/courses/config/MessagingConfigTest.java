@@ -0,0 +1,125 @@
+package de.rieckpil.courses.config;
+
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cloud.aws.autoconfigure.messaging.MessagingAutoConfiguration;
+import org.springframework.cloud.aws.messaging.listener.SqsMessageDeletionPolicy;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.awaitility.Awaitility.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mockingDetails;
+import static org.testcontainers.containers.localstack.LocalStackContainer.Service.SQS;
+
+@SpringBootTest(classes = {MessagingConfig.class, MessagingConfigTest.CountingListener.class},
+  webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ImportAutoConfiguration(MessagingAutoConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class MessagingConfigTest {
+
+  @Container
+  static LocalStackContainer localStack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:0.14.5"))
+    .withServices(SQS);
+
+  private static final String QUEUE_NAME = UUID.randomUUID().toString();
+  private static final int MESSAGES = 20;
+
+  @BeforeAll
+  static void beforeAll() throws IOException, InterruptedException {
+    localStack.execInContainer("awslocal", "sqs", "create-queue", "--queue-name", QUEUE_NAME);
+  }
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("sqs.endpoint", () -> localStack.getEndpointOverride(SQS).toString());
+    registry.add("sqs.book-synchronization-queue", () -> QUEUE_NAME);
+    registry.add("sqs.wait-time", () -> "1s");
+  }
+
+  // the container reaches SQS through the buffered client wrapping this one
+  @SpyBean(name = "amazonSQSAsync")
+  private AmazonSQSAsync amazonSQSAsync;
+
+  @Autowired
+  private CountingListener listener;
+
+  @Test
+  void shouldReceiveAndDeleteMessagesInBatches() {
+    String queueUrl = amazonSQSAsync.getQueueUrl(QUEUE_NAME).getQueueUrl();
+
+    for (int sent = 0; sent < MESSAGES; sent += 10) {
+      List<SendMessageBatchRequestEntry> entries = new ArrayList<>(10);
+      for (int i = 0; i < 10; i++) {
+        entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), "message-" + (sent + i)));
+      }
+      amazonSQSAsync.sendMessageBatch(queueUrl, entries);
+    }
+
+    given()
+      .await()
+      .atMost(10, TimeUnit.SECONDS)
+      .untilAsserted(() -> {
+        assertEquals(MESSAGES, listener.processed.get());
+        assertEquals(MESSAGES, deletedReceiptHandles().size());
+      });
+
+    List<ReceiveMessageRequest> receives = requests(ReceiveMessageRequest.class);
+    assertFalse(receives.isEmpty());
+    assertTrue(receives.stream().allMatch(request -> request.getMaxNumberOfMessages() == 10));
+
+    assertTrue(requests(DeleteMessageRequest.class).isEmpty());
+    assertTrue(requests(DeleteMessageBatchRequest.class).stream().anyMatch(request -> request.getEntries().size() > 1));
+  }
+
+  private Set<String> deletedReceiptHandles() {
+    return requests(DeleteMessageBatchRequest.class).stream()
+      .flatMap(request -> request.getEntries().stream())
+      .map(DeleteMessageBatchRequestEntry::getReceiptHandle)
+      .collect(Collectors.toSet());
+  }
+
+  // sync and async variants alike, the buffered client decides which one it uses
+  private <T> List<T> requests(Class<T> requestType) {
+    return mockingDetails(amazonSQSAsync).getInvocations().stream()
+      .filter(invocation -> invocation.getArguments().length > 0 && requestType.isInstance(invocation.getArgument(0)))
+      .map(invocation -> requestType.cast(invocation.getArgument(0)))
+      .collect(Collectors.toList());
+  }
+
+  static class CountingListener {
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    @SqsListener(value = "${sqs.book-synchronization-queue}", deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+    public void onMessage(String payload) {
+      processed.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package de.rieckpil.courses.config;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.AmazonSQSAsyncClientBuilder;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.cloud.aws.messaging.config.SimpleMessageListenerContainerFactory;
+import org.springframework.cloud.aws.messaging.config.annotation.EnableSqs;
+import org.springframework.cloud.aws.messaging.listener.SqsMessageDeletionPolicy;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Compares the throughput of the listener container configured by {@link MessagingConfig}, which
+ * deletes acknowledged messages with DeleteMessageBatch, against the Spring Cloud AWS defaults
+ * deleting every message on its own. Both run against ElasticMQ with a listener doing no work, so
+ * the SQS round trips dominate. Run with {@code ./mvnw verify -Pbenchmark}.
+ */
+@Testcontainers
+class SqsBatchingBenchmark {
+
+  private static final String QUEUE_NAME = "batching-benchmark";
+  private static final int WARMUP_MESSAGES = 500;
+  private static final int MESSAGES = 5_000;
+
+  @Container
+  static GenericContainer<?> elasticMq = new GenericContainer<>(DockerImageName.parse("softwaremill/elasticmq-native:1.3.9"))
+    .withExposedPorts(9324);
+
+  private String endpoint;
+  private AmazonSQSAsync amazonSQSAsync;
+  private String queueUrl;
+
+  @BeforeEach
+  void setup() {
+    this.endpoint = "http://" + elasticMq.getHost() + ":" + elasticMq.getMappedPort(9324);
+    this.amazonSQSAsync = newClient();
+    this.queueUrl = amazonSQSAsync.createQueue(QUEUE_NAME).getQueueUrl();
+  }
+
+  @AfterEach
+  void tearDown() {
+    amazonSQSAsync.shutdown();
+  }
+
+  @Test
+  void compareBatchedWithSingleDeletions() {
+    run("single deletions", context -> {
+      AmazonSQSAsync client = newClient();
+      SimpleMessageListenerContainerFactory factory = new SimpleMessageListenerContainerFactory();
+      factory.setAmazonSqs(client);
+      factory.setWaitTimeOut(1);
+      context.registerBean("amazonSQSAsync", AmazonSQSAsync.class, () -> client,
+        definition -> definition.setDestroyMethodName("shutdown"));
+      context.registerBean(SimpleMessageListenerContainerFactory.class, () -> factory);
+    });
+
+    run("batched deletions", context -> context.register(MessagingConfig.class));
+  }
+
+  private void run(String name, Consumer<AnnotationConfigApplicationContext> messagingConfig) {
+    amazonSQSAsync.purgeQueue(new PurgeQueueRequest(queueUrl));
+    CountingListener listener = new CountingListener();
+
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+      "sqs.endpoint", endpoint,
+      "sqs.wait-time", "1s")));
+    messagingConfig.accept(context);
+    context.registerBean(CountingListener.class, () -> listener);
+    context.register(SqsConfig.class);
+    context.refresh();
+
+    try (context) {
+      consume(listener, WARMUP_MESSAGES);
+
+      long startedAt = System.nanoTime();
+      consume(listener, MESSAGES);
+      double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+      System.out.printf("%-18s: %8.1f messages/s%n", name, MESSAGES / seconds);
+    }
+  }
+
+  private void consume(CountingListener listener, int messages) {
+    int target = listener.processed.get() + messages;
+
+    for (int sent = 0; sent < messages; sent += 10) {
+      List<SendMessageBatchRequestEntry> entries = new ArrayList<>(10);
+      for (int i = 0; i < Math.min(10, messages - sent); i++) {
+        entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), "message-" + (sent + i)));
+      }
+      amazonSQSAsync.sendMessageBatch(queueUrl, entries);
+    }
+
+    await()
+      .atMost(Duration.ofMinutes(5))
+      .pollInterval(Duration.ofMillis(50))
+      .until(() -> listener.processed.get() >= target);
+  }
+
+  private AmazonSQSAsync newClient() {
+    return AmazonSQSAsyncClientBuilder.standard()
+      .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+      .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, "eu-central-1"))
+      .build();
+  }
+
+  @EnableSqs
+  @Configuration(proxyBeanMethods = false)
+  static class SqsConfig {
+  }
+
+  static class CountingListener {
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    @SqsListener(value = QUEUE_NAME, deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+    public void onMessage(String payload) {
+      processed.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package de.rieckpil.courses.config;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.AmazonSQSAsyncClientBuilder;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.aws.messaging.config.annotation.EnableSqs;
+import org.springframework.cloud.aws.messaging.listener.SqsMessageDeletionPolicy;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.client.RestTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs the listener container configured by {@link MessagingConfig} against ElasticMQ for every
+ * executor mode and pool size, reporting throughput and the peak number of live JVM threads.
+ * Every message blocks on an upstream answering after {@value #UPSTREAM_LATENCY_MILLIS} ms.
+ * <p>
+ * The container hands out at most {@code sqs.max-number-of-messages} messages per poll and waits
+ * for all of them before polling again, so a larger pool or virtual threads don't raise the
+ * throughput of a single queue. On Java 17 the virtual mode falls back to the platform pool. Run
+ * with {@code ./mvnw verify -Pbenchmark}.
+ */
+@Testcontainers
+class SqsListenerExecutorsBenchmark {
+
+  private static final String QUEUE_NAME = "executor-benchmark";
+  private static final int UPSTREAM_LATENCY_MILLIS = 100;
+  private static final int WARMUP_MESSAGES = 100;
+  private static final int MESSAGES = 1_000;
+  private static final int[] POOL_SIZES = {11, 64, 256};
+
+  @Container
+  static GenericContainer<?> elasticMq = new GenericContainer<>(DockerImageName.parse("softwaremill/elasticmq-native:1.3.9"))
+    .withExposedPorts(9324);
+
+  private WireMockServer wireMockServer;
+  private String endpoint;
+  private AmazonSQSAsync amazonSQSAsync;
+  private String queueUrl;
+
+  @BeforeEach
+  void setup() {
+    this.wireMockServer = new WireMockServer(new WireMockConfiguration().dynamicPort().containerThreads(512));
+    this.wireMockServer.start();
+
+    wireMockServer.stubFor(get(urlPathEqualTo("/slow"))
+      .willReturn(aResponse()
+        .withBody("OK")
+        .withFixedDelay(UPSTREAM_LATENCY_MILLIS)));
+
+    this.endpoint = "http://" + elasticMq.getHost() + ":" + elasticMq.getMappedPort(9324);
+    this.amazonSQSAsync = AmazonSQSAsyncClientBuilder.standard()
+      .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+      .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, "eu-central-1"))
+      .build();
+
+    this.queueUrl = amazonSQSAsync.createQueue(QUEUE_NAME).getQueueUrl();
+  }
+
+  @AfterEach
+  void tearDown() {
+    amazonSQSAsync.shutdown();
+    wireMockServer.stop();
+  }
+
+  @Test
+  void compareExecutorModes() {
+    RestTemplate restTemplate = new RestTemplateBuilder().rootUri(wireMockServer.baseUrl()).build();
+
+    for (SqsListenerExecutors.Mode mode : SqsListenerExecutors.Mode.values()) {
+      for (int poolSize : POOL_SIZES) {
+        amazonSQSAsync.purgeQueue(new PurgeQueueRequest(queueUrl));
+        SlowUpstreamListener listener = new SlowUpstreamListener(restTemplate);
+
+        // closing the context shuts the workers down, idle ones would count towards the next peak
+        try (AnnotationConfigApplicationContext context = startContainer(mode, poolSize, listener)) {
+          consume(listener, WARMUP_MESSAGES);
+
+          ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+          threads.resetPeakThreadCount();
+
+          long startedAt = System.nanoTime();
+          consume(listener, MESSAGES);
+          double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+          System.out.printf("%-8s pool size %4d: %8.1f messages/s, peak threads %5d%n",
+            mode, poolSize, MESSAGES / seconds, threads.getPeakThreadCount());
+        }
+
+        if (mode == SqsListenerExecutors.Mode.VIRTUAL
+          && SqsListenerExecutors.newVirtualThreadPerTaskExecutor().isPresent()) {
+          // the pool size doesn't apply to virtual threads, one run is enough
+          break;
+        }
+      }
+    }
+  }
+
+  private AnnotationConfigApplicationContext startContainer(SqsListenerExecutors.Mode mode,
+                                                            int poolSize,
+                                                            SlowUpstreamListener listener) {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+      "sqs.endpoint", endpoint,
+      "sqs.wait-time", "1s",
+      "sqs.executor", mode.name(),
+      "sqs.worker-pool-size", String.valueOf(poolSize))));
+    context.registerBean(SlowUpstreamListener.class, () -> listener);
+    context.register(MessagingConfig.class, SqsConfig.class);
+    context.refresh();
+    return context;
+  }
+
+  private void consume(SlowUpstreamListener listener, int messages) {
+    int target = listener.processed.get() + messages;
+
+    for (int sent = 0; sent < messages; sent += 10) {
+      List<SendMessageBatchRequestEntry> entries = new ArrayList<>(10);
+      for (int i = 0; i < Math.min(10, messages - sent); i++) {
+        entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), "message-" + (sent + i)));
+      }
+      amazonSQSAsync.sendMessageBatch(queueUrl, entries);
+    }
+
+    await()
+      .atMost(Duration.ofMinutes(5))
+      .pollInterval(Duration.ofMillis(50))
+      .until(() -> listener.processed.get() >= target);
+  }
+
+  @EnableSqs
+  @Configuration(proxyBeanMethods = false)
+  static class SqsConfig {
+  }
+
+  static class SlowUpstreamListener {
+
+    private final RestTemplate restTemplate;
+    private final AtomicInteger processed = new AtomicInteger();
+
+    SlowUpstreamListener(RestTemplate restTemplate) {
+      this.restTemplate = restTemplate;
+    }
+
+    @SqsListener(value = QUEUE_NAME, deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+    public void onMessage(String payload) {
+      restTemplate.getForObject("/slow", String.class);
+      processed.incrementAndGet();
+    }
+  }
+}